@@ -1,7 +1,14 @@
 package ga;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import utils.RandomGenerator;
 
 /**
  * A simple implementation of the IGeneticAlgorithm interface.
@@ -13,7 +20,14 @@ public abstract class GeneticAlgorithm implements IGeneticAlgorithm {
 	private IProblemInstance problemInstance;
 	private float mutationRate, crossoverRate;
 	private int elites;
-	private Random random;
+	private RandomGenerator random;
+	
+	// Random generator of the parallel task running on the current thread (unset outside of tasks)
+	private final ThreadLocal<RandomGenerator> taskRandom = new ThreadLocal<RandomGenerator>();
+	
+	// Worker threads for the parallel stages (created when first needed)
+	private int threads;
+	private ExecutorService executor;
 
 	public GeneticAlgorithm(IProblemInstance problemInstance, float mutationRate, float crossoverRate) {
 		this.problemInstance = problemInstance;
@@ -21,7 +35,8 @@ public abstract class GeneticAlgorithm implements IGeneticAlgorithm {
 		this.mutationRate = mutationRate;
 		this.crossoverRate = crossoverRate;
 		this.elites = 0;
-		this.random = new Random();
+		this.random = RandomGenerator.create(RandomGenerator.Algorithm.XOROSHIRO, System.nanoTime());
+		this.threads = 0;
 	}
 	
 	public GeneticAlgorithm(IProblemInstance problemInstance) {
@@ -55,18 +70,24 @@ public abstract class GeneticAlgorithm implements IGeneticAlgorithm {
 		if(printTimes)
 			System.out.println("Creating offspring took " + (System.nanoTime() - time) / 1000000 + "ms");
 		
-		// Mutate (handles mutation rates higher than 1)
+		// Mutate (handles mutation rates higher than 1), then evaluate the offspring on the worker threads
 		time = System.nanoTime();
-		for(int i = 0; i < offspring.size(); i++) {
-			float r = getMutationRate();
-			while(r > 0) {
-				if(r >= 1 || random() < r)
-					offspring.get(i).mutate();
-				r -= 1;
-			}
+		List<Callable<IIndividual>> tasks = new ArrayList<Callable<IIndividual>>();
+		for(IIndividual ind : offspring) {
+			tasks.add(() -> {
+				float r = getMutationRate();
+				while(r > 0) {
+					if(r >= 1 || random() < r)
+						ind.mutate();
+					r -= 1;
+				}
+				ind.getFitness();
+				return ind;
+			});
 		}
+		runInParallel(tasks);
 		if(printTimes)
-			System.out.println("Mutating took " + (System.nanoTime() - time) / 1000000 + "ms");
+			System.out.println("Mutating and evaluating took " + (System.nanoTime() - time) / 1000000 + "ms");
 		
 		// Insert offspring
 		time = System.nanoTime();
@@ -81,15 +102,82 @@ public abstract class GeneticAlgorithm implements IGeneticAlgorithm {
 	}
 	
 	/**
-	 * Get a random float in [0,1[ using this GA's random generator
+	 * Get a random float in [0,1[ using this GA's random generator.
+	 * Inside of a parallel task, the task's own random generator is used instead.
 	 * @return a random float between 0 (inclusive) and 1 (exclusive)
 	 */
 	public float random() {
-		return random.nextFloat();
+		return getRandomGenerator().nextFloat();
+	}
+	
+	/**
+	 * Get the random generator to use on the current thread (for bulk use, e.g. drawing random bits a word at a time).
+	 * @return the random generator of the current parallel task, or this GA's random generator outside of tasks
+	 */
+	public RandomGenerator getRandomGenerator() {
+		RandomGenerator r = taskRandom.get();
+		return r != null ? r : random;
+	}
+	
+	/**
+	 * Run tasks on the worker threads of this GA, and wait for them to finish (must not be called from a task).
+	 * Each task gets its own random generator (see random()), split from this GA's generator beforehand, 
+	 * so that the results don't depend on the number of threads or on the order of execution.
+	 * @param tasks - A list of tasks
+	 * @return the results of the tasks, in the same order
+	 */
+	public <T> List<T> runInParallel(List<Callable<T>> tasks) {
+		List<Callable<T>> seededTasks = new ArrayList<Callable<T>>(tasks.size());
+		for(Callable<T> task : tasks) {
+			RandomGenerator taskGenerator = random.split();
+			seededTasks.add(() -> {
+				taskRandom.set(taskGenerator);
+				try {
+					return task.call();
+				} finally {
+					taskRandom.remove();
+				}
+			});
+		}
+		
+		try {
+			List<T> results = new ArrayList<T>(tasks.size());
+			for(Future<T> future : getExecutor().invokeAll(seededTasks))
+				results.add(future.get());
+			return results;
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch(ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+	
+	/**
+	 * Get the executor running the worker threads, creating it if needed.
+	 * @return an executor with getThreads() daemon threads
+	 */
+	private synchronized ExecutorService getExecutor() {
+		if(executor == null) {
+			executor = Executors.newFixedThreadPool(getThreads(), runnable -> {
+				Thread thread = new Thread(runnable, "GA worker");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return executor;
 	}
 	
 	/* SETTERS */
 	
+	/**
+	 * Set the random generator of this GA, e.g. to use a given seed.
+	 * @param random - A random generator
+	 */
+	public void setRandomGenerator(RandomGenerator random) {
+		this.random = random;
+	}
+	
 	@Override
 	public void setMutationRate(float r) {
 		this.mutationRate = r;
@@ -104,6 +192,16 @@ public abstract class GeneticAlgorithm implements IGeneticAlgorithm {
 	public void setElites(int elites) {
 		this.elites = elites;
 	}
+	
+	@Override
+	public synchronized void setThreads(int threads) {
+		this.threads = threads;
+		// The executor is re-created with the new number of threads when needed
+		if(executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
 
 	/* GETTERS */
 	
@@ -135,4 +233,9 @@ public abstract class GeneticAlgorithm implements IGeneticAlgorithm {
 	public int getElites() {
 		return elites;
 	}
+	
+	@Override
+	public int getThreads() {
+		return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+	}
 }
@@ -46,6 +46,12 @@ public interface IGeneticAlgorithm {
 	 */
 	public void setElites(int elites);
 	
+	/**
+	 * Set the number of worker threads used for the parallel stages of the GA.
+	 * @param threads - The number of threads (0 to use all available processors)
+	 */
+	public void setThreads(int threads);
+	
 	/* GETTERS */
 	
 	/**
@@ -77,4 +83,10 @@ public interface IGeneticAlgorithm {
 	 * @return The number of best individuals to keep at each generation
 	 */
 	public int getElites();
+	
+	/**
+	 * Get the number of worker threads
+	 * @return The number of threads used for the parallel stages of the GA
+	 */
+	public int getThreads();
 }
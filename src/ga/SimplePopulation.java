@@ -1,21 +1,28 @@
 package ga;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
-import java.util.PriorityQueue;
 
 /**
  * A simple implementation of the IPopulation interface.
  * @author Kelian Baert & Caroline de Pourtales
  */
 public abstract class SimplePopulation implements IPopulation {
+	// Ways of selecting parents
+	public static enum SelectionMethod {TOURNAMENT, STOCHASTIC_UNIVERSAL_SAMPLING, RANK};
+	
 	private List<IIndividual> individuals;
 	protected GeneticAlgorithm ga;
 	
+	// Buffer for the individuals of a tournament, reused between selections
+	private IIndividual[] tournament;
+	
 	public SimplePopulation(GeneticAlgorithm ga) {
 		individuals = new ArrayList<IIndividual>();
 		this.ga = ga;
+		this.tournament = new IIndividual[0];
 	}
 	
 	@Override
@@ -61,6 +68,8 @@ public abstract class SimplePopulation implements IPopulation {
 	public void insertOffspring(List<IIndividual> offspring) {
 		// No elitism - replace whole population
 		if(ga.getElites() == 0) {
+			for(IIndividual ind : getIndividuals())
+				discard(ind);
 			getIndividuals().clear();
 			getIndividuals().addAll(offspring);
 		}
@@ -68,10 +77,18 @@ public abstract class SimplePopulation implements IPopulation {
 		else {
 			putElitesFirst(ga.getElites());
 			for(int i = 0; i < offspring.size(); i++)
-				getIndividuals().set(ga.getElites() + i, offspring.get(i));
+				discard(getIndividuals().set(ga.getElites() + i, offspring.get(i)));
 		}
 	}
 	
+	/**
+	 * Called when an individual leaves the population for good (e.g. when it is replaced by offspring), 
+	 * so that subclasses can reuse it. Does nothing by default.
+	 * @param ind - An individual that is no longer referenced by the population
+	 */
+	protected void discard(IIndividual ind) {
+	}
+	
 	@Override
 	public Comparator<IIndividual> getSelectionComparator() {
 		// By default, just compare individuals by fitness
@@ -86,14 +103,11 @@ public abstract class SimplePopulation implements IPopulation {
 		if(numberOfElites == 0)
 			return;
 		
-		PriorityQueue<IIndividual> heap = new PriorityQueue<>(getIndividuals().size(), getSelectionComparator());
-		heap.addAll(getIndividuals());
-		for(int i = 0; i < numberOfElites; i++) {
-			IIndividual next = heap.poll();
-			int idx = getIndividuals().indexOf(next);
-			getIndividuals().remove(idx);
-			getIndividuals().add(0, next);
-		}
+		// Partition the individuals around the last elite (quickselect), in linear time on average
+		IIndividual[] inds = getIndividuals().toArray(new IIndividual[getSize()]);
+		selectFirst(inds, Math.min(numberOfElites, inds.length), getSelectionComparator());
+		for(int i = 0; i < inds.length; i++)
+			getIndividuals().set(i, inds[i]);
 	}
 	
 	/**
@@ -102,25 +116,32 @@ public abstract class SimplePopulation implements IPopulation {
 	 * @param p - The probability of selecting the best individual in the tournament
 	 */
 	public IIndividual tournamentSelection(int tournamentSize, float p) {
-		List<IIndividual> pool = new ArrayList<IIndividual>();
+		if(tournament.length < tournamentSize)
+			tournament = new IIndividual[tournamentSize];
+		Comparator<IIndividual> comparator = getSelectionComparator();
 		
 		// Create the tournament pool
 		for(int i = 0; i < tournamentSize; i++)
-			pool.add(getIndividuals().get((int) (ga.random() * getIndividuals().size())));
-		
-		// Sort using the selection comparator
-		pool.sort(getSelectionComparator());
+			tournament[i] = getIndividuals().get((int) (ga.random() * getIndividuals().size()));
 		
-		// Extract an individual
-		if(p == 1)
-			return pool.get(0);
-		for(int i = 0; i < pool.size(); i++) {
-			if(ga.random() < p * Math.pow(1-p, i)) 
-				return pool.get(i);
+		// Extract an individual: the pool is only sorted as far as needed, by moving the best remaining individual to the next position
+		// (shifting the others, so that ties are ordered as in a stable sort)
+		for(int i = 0; i < tournamentSize; i++) {
+			int best = i;
+			for(int j = i + 1; j < tournamentSize; j++) {
+				if(comparator.compare(tournament[j], tournament[best]) < 0)
+					best = j;
+			}
+			IIndividual selected = tournament[best];
+			System.arraycopy(tournament, i, tournament, i + 1, best - i);
+			tournament[i] = selected;
+			
+			if(p == 1 || ga.random() < p * Math.pow(1-p, i))
+				return selected;
 		}
 		
 		// Fall back to random
-		return pool.get((int) (ga.random() * pool.size()));
+		return tournament[(int) (ga.random() * tournamentSize)];
 	}
 
 	/**
@@ -130,4 +151,113 @@ public abstract class SimplePopulation implements IPopulation {
 	public IIndividual tournamentSelection(int tournamentSize) {
 		return tournamentSelection(tournamentSize, 1);
 	}
+	
+	/**
+	 * Selects individuals using stochastic universal sampling: individuals are selected in proportion to their fitness
+	 * (relative to the lowest fitness of the population), using evenly spaced pointers.
+	 * @param count - The number of individuals to select
+	 * @return a list of selected individuals, in random order
+	 */
+	public List<IIndividual> stochasticUniversalSampling(int count) {
+		int size = getSize();
+		float[] fitness = new float[size];
+		float minFitness = Float.POSITIVE_INFINITY;
+		for(int i = 0; i < size; i++) {
+			fitness[i] = getIndividuals().get(i).getFitness();
+			minFitness = Math.min(minFitness, fitness[i]);
+		}
+		
+		// Fitness can be negative, so the weight of an individual is its distance to the worst one (uniform if all are equal)
+		double total = 0;
+		for(int i = 0; i < size; i++)
+			total += fitness[i] - minFitness;
+		
+		IIndividual[] selected = new IIndividual[count];
+		double step = total / count, pointer = ga.random() * step, cumulated = 0;
+		for(int i = 0, n = 0; n < count; n++) {
+			if(total == 0)
+				i = (int) ((long) n * size / count);
+			else {
+				while(i < size - 1 && cumulated + (fitness[i] - minFitness) <= pointer)
+					cumulated += fitness[i++] - minFitness;
+				pointer += step;
+			}
+			selected[n] = getIndividuals().get(i);
+		}
+		return shuffle(selected);
+	}
+	
+	/**
+	 * Selects individuals using linear ranking: individuals are sorted with the selection comparator, and
+	 * the probability of selecting an individual decreases linearly with its rank.
+	 * @param count - The number of individuals to select
+	 * @param pressure - The expected number of times the best individual is selected per <code>getSize()</code> selections, between 1 (uniform) and 2
+	 * @return a list of selected individuals, in random order
+	 */
+	public List<IIndividual> rankSelection(int count, float pressure) {
+		int size = getSize();
+		IIndividual[] sorted = getIndividuals().toArray(new IIndividual[size]);
+		Arrays.sort(sorted, getSelectionComparator());
+		
+		// Cumulated selection probabilities, from the best individual to the worst
+		double[] cumulated = new double[size];
+		double sum = 0;
+		for(int i = 0; i < size; i++) {
+			sum += size == 1 ? 1 : (pressure - (2 * pressure - 2) * i / (double) (size - 1)) / size;
+			cumulated[i] = sum;
+		}
+		
+		IIndividual[] selected = new IIndividual[count];
+		for(int n = 0; n < count; n++) {
+			int i = Arrays.binarySearch(cumulated, ga.random() * sum);
+			selected[n] = sorted[Math.min(size - 1, i < 0 ? -i - 1 : i)];
+		}
+		return shuffle(selected);
+	}
+	
+	/**
+	 * Shuffle an array of individuals (Fisher-Yates), so that consecutive selections are independent.
+	 */
+	private List<IIndividual> shuffle(IIndividual[] inds) {
+		for(int i = inds.length - 1; i > 0; i--) {
+			int j = (int) (ga.random() * (i + 1));
+			IIndividual tmp = inds[i];
+			inds[i] = inds[j];
+			inds[j] = tmp;
+		}
+		return new ArrayList<IIndividual>(Arrays.asList(inds));
+	}
+	
+	/**
+	 * Partially sorts an array so that its first k elements are the k smallest ones according to a comparator (quickselect).
+	 */
+	private static void selectFirst(IIndividual[] inds, int k, Comparator<IIndividual> comparator) {
+		if(k <= 0 || k >= inds.length)
+			return;
+		
+		// Find the individual that should be at position k-1, partitioning the array around it
+		int lo = 0, hi = inds.length - 1;
+		while(lo < hi) {
+			IIndividual pivot = inds[(lo + hi) >>> 1];
+			int i = lo, j = hi;
+			while(i <= j) {
+				while(comparator.compare(inds[i], pivot) < 0)
+					i++;
+				while(comparator.compare(inds[j], pivot) > 0)
+					j--;
+				if(i <= j) {
+					IIndividual tmp = inds[i]; inds[i] = inds[j]; inds[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			// Individuals in [lo, j] come before or with the pivot, individuals in [i, hi] come after or with it
+			if(k - 1 <= j)
+				hi = j;
+			else if(k - 1 >= i)
+				lo = i;
+			else
+				break;
+		}
+	}
 }
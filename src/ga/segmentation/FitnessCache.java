@@ -0,0 +1,125 @@
+package ga.segmentation;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of the objective values of segmentations, evicting the least recently used entries.
+ * Different genotypes often decode to the same segmentation, so the cache is keyed by the decoded segmentation.
+ * SegmentDecoder numbers segments by increasing first pixel, so equal segmentations always have equal pixel segment arrays:
+ * entries are found by the hash of the array, then verified by comparing the whole arrays.
+ * The cache can be shared by several threads.
+ * @author Kelian Baert & Caroline de Pourtales
+ */
+public class FitnessCache {
+	// Entries by segmentation, in access order
+	private final LinkedHashMap<Key, CachedValues> entries;
+
+	// Number of lookups that found an entry, or didn't
+	private long hits, misses;
+
+	/**
+	 * Create an empty cache.
+	 * @param capacity - The maximum number of entries (each entry stores a copy of the pixel segments array)
+	 */
+	public FitnessCache(int capacity) {
+		this.entries = new LinkedHashMap<Key, CachedValues>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CachedValues> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Look up the objective values of a segmentation.
+	 * @param pixelSegments - The segment of each pixel, as numbered by SegmentDecoder
+	 * @param objectives - An array of length 3 in which to store the objectives, indexed by the constants of ObjectiveEvaluator
+	 * @return the deviation of each segment (must not be modified), or null if the segmentation isn't in the cache
+	 */
+	public double[] lookup(int[] pixelSegments, float[] objectives) {
+		Key key = new Key(pixelSegments);
+		synchronized(this) {
+			CachedValues entry = entries.get(key);
+			if(entry == null) {
+				misses++;
+				return null;
+			}
+			hits++;
+			System.arraycopy(entry.objectives, 0, objectives, 0, objectives.length);
+			return entry.segmentDeviations;
+		}
+	}
+
+	/**
+	 * Store the objective values of a segmentation.
+	 * @param pixelSegments - The segment of each pixel, as numbered by SegmentDecoder (it is copied)
+	 * @param objectives - The objectives of the segmentation, indexed by the constants of ObjectiveEvaluator
+	 * @param segmentDeviations - The deviation of each segment (it is not copied, so it must not be modified afterwards)
+	 */
+	public void store(int[] pixelSegments, float[] objectives, double[] segmentDeviations) {
+		Key key = new Key(pixelSegments.clone());
+		CachedValues entry = new CachedValues(objectives.clone(), segmentDeviations);
+		synchronized(this) {
+			entries.put(key, entry);
+		}
+	}
+
+	/**
+	 * Get the number of lookups that found the segmentation in the cache.
+	 * @return the number of hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of lookups that didn't find the segmentation in the cache.
+	 * @return the number of misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * A segmentation, compared by content.
+	 */
+	private static class Key {
+		private final int[] pixelSegments;
+		private final int hash;
+
+		public Key(int[] pixelSegments) {
+			this.pixelSegments = pixelSegments;
+			this.hash = Arrays.hashCode(pixelSegments);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Key))
+				return false;
+			Key other = (Key) o;
+			return hash == other.hash && Arrays.equals(pixelSegments, other.pixelSegments);
+		}
+	}
+
+	/**
+	 * The cached values of a segmentation.
+	 */
+	private static class CachedValues {
+		private final float[] objectives;
+		private final double[] segmentDeviations;
+
+		public CachedValues(float[] objectives, double[] segmentDeviations) {
+			this.objectives = objectives;
+			this.segmentDeviations = segmentDeviations;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package ga.segmentation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import ga.segmentation.Individual.Direction;
+
+/**
+ * A compact genotype storing one direction per pixel as a byte (the ordinal of the direction).
+ * Conversions to and from the Direction enum are only done at the API edge.
+ * @author Kelian Baert & Caroline de Pourtales
+ */
+public class Genotype {
+	// Shared lookup table from codes to directions
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	// Byte codes for each direction (equal to the ordinals of the Direction enum)
+	public static final byte NONE = 0, UP = 1, RIGHT = 2, DOWN = 3, LEFT = 4;
+
+	// The direction code of each pixel
+	private byte[] codes;
+
+	/**
+	 * Create a new genotype in which all pixels have direction NONE.
+	 * @param size - The number of pixels
+	 */
+	public Genotype(int size) {
+		this.codes = new byte[size];
+	}
+
+	/**
+	 * Create a genotype from an array of directions.
+	 * @param directions - An array of directions (each pixel has a Direction)
+	 */
+	public Genotype(Direction[] directions) {
+		this(directions.length);
+		for(int i = 0; i < directions.length; i++)
+			codes[i] = (byte) directions[i].ordinal();
+	}
+
+	/**
+	 * Get the number of pixels in this genotype.
+	 * @return the size of the genotype
+	 */
+	public int size() {
+		return codes.length;
+	}
+
+	/**
+	 * Get the direction of a given pixel.
+	 * @param i - A pixel index
+	 * @return the direction of pixel i
+	 */
+	public Direction get(int i) {
+		return DIRECTIONS[codes[i]];
+	}
+
+	/**
+	 * Set the direction of a given pixel.
+	 * @param i - A pixel index
+	 * @param dir - A direction
+	 */
+	public void set(int i, Direction dir) {
+		codes[i] = (byte) dir.ordinal();
+	}
+
+	/**
+	 * Get the direction code of a given pixel.
+	 * @param i - A pixel index
+	 * @return the code of the direction of pixel i (one of the constants defined in this class)
+	 */
+	public byte getCode(int i) {
+		return codes[i];
+	}
+
+	/**
+	 * Set the direction code of a given pixel.
+	 * @param i - A pixel index
+	 * @param code - A direction code (one of the constants defined in this class)
+	 */
+	public void setCode(int i, byte code) {
+		codes[i] = code;
+	}
+
+	/**
+	 * Copy a range of genes from another genotype of the same size into this one.
+	 * @param source - The genotype to copy from
+	 * @param from - The first pixel index to copy (inclusive)
+	 * @param to - The last pixel index to copy (exclusive)
+	 */
+	public void copyRange(Genotype source, int from, int to) {
+		System.arraycopy(source.codes, from, codes, from, to - from);
+	}
+
+	/**
+	 * Creates a copy of this genotype.
+	 * @return a new Genotype instance with the same genes
+	 */
+	public Genotype copy() {
+		Genotype copy = new Genotype(0);
+		copy.codes = codes.clone();
+		return copy;
+	}
+
+	/**
+	 * Write this genotype in binary form: its size, followed by the code of each pixel (one byte each).
+	 * @param out - The output to write to
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(codes.length);
+		out.write(codes);
+	}
+
+	/**
+	 * Read a genotype written by <code>write</code>.
+	 * @param in - The input to read from
+	 * @return a new genotype
+	 * @throws IOException
+	 */
+	public static Genotype read(DataInput in) throws IOException {
+		Genotype genotype = new Genotype(in.readInt());
+		in.readFully(genotype.codes);
+		for(byte code : genotype.codes) {
+			if(code < NONE || code > LEFT)
+				throw new IOException("Invalid direction code " + code);
+		}
+		return genotype;
+	}
+
+	/**
+	 * Convert this genotype to an array of directions.
+	 * @return a new array containing the direction of each pixel
+	 */
+	public Direction[] toDirections() {
+		Direction[] directions = new Direction[codes.length];
+		for(int i = 0; i < codes.length; i++)
+			directions[i] = DIRECTIONS[codes[i]];
+		return directions;
+	}
+}
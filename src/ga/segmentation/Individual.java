@@ -7,6 +7,8 @@ import java.util.List;
 import ga.IIndividual;
 import main.Main;
 import utils.CachedValue;
+import utils.RandomGenerator;
+import utils.SynchronizedCachedValue;
 
 /**
  * A specific IIndividual implementation for the image segmentation GA.
@@ -17,12 +19,18 @@ public class Individual implements IIndividual {
 		NONE, UP, RIGHT, DOWN, LEFT;
 	}
 	
-	// Store the segmentation as an array of directions.
-	private Direction[] representation;
+	// In uniform crossovers, a gene is taken from the first parent if 16 random bits are below this threshold (60% of the time)
+	private static final int UNIFORM_CROSSOVER_THRESHOLD = (int) (0.6 * (1 << 16));
+	
+	// Store the segmentation as a compact array of directions.
+	private Genotype representation;
 	
 	// Store the segmentation as a list of segments
 	private List<Segment> segments;
 	
+	// Pixels grouped by segment and start of each segment in that array (the segments are ranges of it, reused between decodings)
+	private int[] segmentPixels, segmentOffsets;
+	
 	// Store the segmentation as a segment matrix
 	private int[] pixelSegments;
 	
@@ -31,22 +39,31 @@ public class Individual implements IIndividual {
 	
 	private CachedValue<Float> fitness;
 	
+	// Store the deviation of each segment, used to update the overall deviation incrementally (null when unknown)
+	private double[] segmentDeviations;
+	
 	// Keep a reference to the GA this individual belongs to
 	private SegmentationGA ga;
+	
+	// Dense index of this individual in the last set of individuals ranked by a population (-1 if never ranked)
+	private int selectionIndex = -1;
+	
+	// Whether the genotype and decoded arrays may be shared with copies of this individual (they are copied before being modified)
+	private boolean sharedBuffers = false;
 
 	/**
 	 * Create an individual from a given genotype
 	 * @param ga - The GA this individual belongs to
-	 * @param genotype - A genotype, as an array of directions (each pixel has a Direction)
+	 * @param genotype - A genotype
 	 */
-	public Individual(SegmentationGA ga, Direction[] genotype) {
+	public Individual(SegmentationGA ga, Genotype genotype) {
 		this.ga = ga;
 		
 		ProblemInstance pi = ((ProblemInstance) ga.getProblemInstance());
 		
 		if(genotype == null) {
 			// Initialize the representation
-			this.representation = new Direction[pi.getImage().getWidth() * pi.getImage().getHeight()];
+			this.representation = new Genotype(pi.getImage().getWidth() * pi.getImage().getHeight());
 		}
 		else {	
 			this.representation = genotype;
@@ -57,12 +74,13 @@ public class Individual implements IIndividual {
 			beta = Main.config.getFloat("fitness_beta"),
 			gamma = Main.config.getFloat("fitness_gamma");
 		
-		// Initialize the caches
-		edgeValue = new CachedValue<Float>(this::computeEdgeValue);
-		connectivity = new CachedValue<Float>(this::computeConnectivity);
-		overallDeviation = new CachedValue<Float>(this::computeOverallDeviation);
+		// Initialize the caches (all objectives are computed at once upon the first access to any of them).
+		// Individuals may be evaluated on worker threads, so all caches are synchronized on the individual.
+		edgeValue = new SynchronizedCachedValue<Float>(this, () -> evaluateObjectives(ObjectiveEvaluator.EDGE_VALUE));
+		connectivity = new SynchronizedCachedValue<Float>(this, () -> evaluateObjectives(ObjectiveEvaluator.CONNECTIVITY));
+		overallDeviation = new SynchronizedCachedValue<Float>(this, () -> evaluateObjectives(ObjectiveEvaluator.OVERALL_DEVIATION));
 
-		fitness = new CachedValue<Float>(() -> {
+		fitness = new SynchronizedCachedValue<Float>(this, () -> {
 			return alpha * edgeValue.getValue() + 
 				beta * connectivity.getValue() + 
 				gamma * overallDeviation.getValue();
@@ -70,12 +88,21 @@ public class Individual implements IIndividual {
 		
 	}
 	
+	/**
+	 * Create an individual from a given genotype
+	 * @param ga - The GA this individual belongs to
+	 * @param genotype - A genotype, as an array of directions (each pixel has a Direction)
+	 */
+	public Individual(SegmentationGA ga, Direction[] genotype) {
+		this(ga, new Genotype(genotype));
+	}
+	
 	/**
 	 * Create a new Individual
 	 * @param ga - The GA this individual belongs to
 	 */
 	public Individual(SegmentationGA ga) {
-		this(ga, null);
+		this(ga, (Genotype) null);
 	}
 	
 	/**
@@ -106,6 +133,31 @@ public class Individual implements IIndividual {
 	public float getFitness() {
 		return fitness.getValue();
 	}
+	
+	/**
+	 * Compute all objectives at once and store them in cache.
+	 * @param objective - The objective to return (one of the constants defined in ObjectiveEvaluator)
+	 * @return the value of the given objective
+	 */
+	private float evaluateObjectives(int objective) {
+		float[] objectives = new float[3];
+		
+		// Segmentations that were already evaluated (e.g. decoded from another genotype) are found in the fitness cache
+		FitnessCache cache = ga.getFitnessCache();
+		double[] deviations = cache == null ? null : cache.lookup(pixelSegments, objectives);
+		if(deviations == null) {
+			deviations = new double[segments.size()];
+			ga.getProblemInstance().getObjectiveEvaluator().evaluate(pixelSegments, segments.size(), objectives, deviations);
+			if(cache != null)
+				cache.store(pixelSegments, objectives, deviations);
+		}
+		segmentDeviations = deviations;
+		
+		edgeValue.setValue(objectives[ObjectiveEvaluator.EDGE_VALUE]);
+		connectivity.setValue(objectives[ObjectiveEvaluator.CONNECTIVITY]);
+		overallDeviation.setValue(objectives[ObjectiveEvaluator.OVERALL_DEVIATION]);
+		return objectives[objective];
+	}
 
 	@Override
 	public void mutate() {
@@ -118,7 +170,7 @@ public class Individual implements IIndividual {
 		}
 		else {*/
 			// Mutate on a single position
-			int randPos = (int) (ga.random() * this.representation.length);
+			int randPos = (int) (ga.random() * this.representation.size());
 			
 			Direction randDir;
 			if(ga.random() < 0.1)
@@ -126,13 +178,25 @@ public class Individual implements IIndividual {
 			else {
 				Direction[] dirs = {Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT};
 				int dir = (int) (ga.random() * dirs.length);
-				if(representation[randPos] == dirs[dir])
+				if(representation.get(randPos) == dirs[dir])
 					dir = (dir+1) % dirs.length;
 				randDir = dirs[dir];
 			}
-			this.representation[randPos] = randDir; 
 		//}
 		
+		// Get a private copy of the genotype and pixel segments before modifying them
+		unshare();
+		
+		// Update the objective values directly if possible
+		if(ga.useIncrementalEvaluation() && edgeValue.isUpToDate() && connectivity.isUpToDate() && 
+				overallDeviation.isUpToDate() && segmentDeviations != null) {
+			mutateIncrementally(randPos, randDir);
+			fitness.needsUpdating();
+			return;
+		}
+		
+		this.representation.set(randPos, randDir); 
+		
 		// Update segment representation and notify that the objective values need to be updated
 		updateSegmentRepresentation();
 		edgeValue.needsUpdating();
@@ -141,6 +205,96 @@ public class Individual implements IIndividual {
 		fitness.needsUpdating();
 	}
 	
+	/**
+	 * Change the direction of a single pixel and update the objective values incrementally.
+	 * Only the pixels whose direction chain goes through the mutated pixel can change segment, so edge value and connectivity
+	 * are only updated along their boundary, and overall deviation is only re-computed for the segments that were split or merged.
+	 * @param pos - The pixel to mutate
+	 * @param dir - The new direction of the pixel
+	 */
+	private void mutateIncrementally(int pos, Direction dir) {
+		ProblemInstance pi = ga.getProblemInstance();
+		ObjectiveEvaluator evaluator = pi.getObjectiveEvaluator();
+		int w = pi.getImage().getWidth(), h = pi.getImage().getHeight();
+		final int upstreamMarker = -1;
+		
+		representation.set(pos, dir);
+		
+		// Collect the pixels that move along with the mutated one (they all belong to the same segment)
+		int oldSegment = pixelSegments[pos];
+		int[] upstream = SegmentDecoder.collectUpstreamPixels(representation, pos, w, h, pixelSegments, upstreamMarker);
+		int numUpstream = upstream[0];
+		
+		// Find the segment they join after the mutation (-1 if they form their own segment)
+		int target = getPixelIndex(pos, dir);
+		int newSegment = target == -1 ? -1 : pixelSegments[target];
+		
+		// Update edge value and connectivity for the pairs of pixels that were separated or joined
+		float edgeDelta = 0, connectivityDelta = 0;
+		for(int u = 1; u <= numUpstream; u++) {
+			int i = upstream[u];
+			for(int mask = pi.getNeighborMask(i); mask != 0; mask &= mask - 1) {
+				int neighbor = Integer.numberOfTrailingZeros(mask);
+				int n = i + pi.getNeighborOffset(neighbor);
+				int seg = pixelSegments[n];
+				if(seg == upstreamMarker || (seg == oldSegment) == (seg == newSegment))
+					continue;
+				
+				// Both (i,n) and (n,i) are counted in the objectives (with different connectivity weights)
+				boolean joined = seg == newSegment;
+				if(neighbor <= ProblemInstance.NEIGHBOR_DOWN) {
+					float d = 2 * pi.getNeighborDistance(i, neighbor);
+					edgeDelta += joined ? -d : d;
+				}
+				float c = evaluator.getConnectivityWeight(i, neighbor) + 
+						evaluator.getConnectivityWeight(n, ProblemInstance.getOppositeNeighbor(neighbor));
+				connectivityDelta += joined ? -c : c;
+			}
+		}
+		
+		// Decode the new segmentation (it overwrites the previous segments, so keep their first pixel)
+		int[] oldFirstPixels = new int[segments.size()];
+		for(int k = 0; k < oldFirstPixels.length; k++)
+			oldFirstPixels[k] = segments.get(k).getPixel(0);
+		double[] oldSegmentDeviations = segmentDeviations;
+		updateSegmentRepresentation();
+		
+		// Only re-compute the deviation of segments that contain pixels from the old or new segment of the mutated pixel.
+		// Segments are ordered by their first pixel, so unaffected segments can be matched by walking both lists.
+		segmentDeviations = new double[segments.size()];
+		double overallDeviation = 0;
+		int o = 0;
+		for(int k = 0; k < segments.size(); k++) {
+			int first = segments.get(k).getPixel(0);
+			while(o < oldFirstPixels.length && oldFirstPixels[o] < first)
+				o++;
+			boolean unaffected = o < oldFirstPixels.length && oldFirstPixels[o] == first && 
+					o != oldSegment && o != newSegment;
+			segmentDeviations[k] = unaffected ? oldSegmentDeviations[o] : evaluator.computeSegmentDeviation(segments.get(k));
+			overallDeviation += segmentDeviations[k];
+		}
+		
+		this.edgeValue.setValue(this.edgeValue.getValue() + edgeDelta);
+		this.connectivity.setValue(this.connectivity.getValue() - connectivityDelta);
+		this.overallDeviation.setValue((float) -overallDeviation);
+		
+		if(ga.checkIncrementalEvaluation())
+			checkObjectiveValues();
+	}
+	
+	/**
+	 * Compare the cached objective values to a full re-computation and print potential problems.
+	 */
+	private void checkObjectiveValues() {
+		float[] cached = {getEdgeValue(), getConnectivity(), getOverallDeviation()};
+		float[] computed = {computeEdgeValue(), computeConnectivity(), computeOverallDeviation()};
+		String[] names = {"edge value", "connectivity", "overall deviation"};
+		for(int i = 0; i < cached.length; i++) {
+			if(Math.abs(cached[i] - computed[i]) > 1e-3f * Math.max(1, Math.abs(computed[i])))
+				System.err.println("[EVALUATION ERROR] Incremental " + names[i] + " is " + cached[i] + ", expected " + computed[i]);
+		}
+	}
+	
 	/*private void segmentMergeMutation() {
 		ProblemInstance pi = ga.getProblemInstance();
 		
@@ -217,22 +371,37 @@ public class Individual implements IIndividual {
 	
 	@Override
 	public IIndividual crossover(IIndividual iparentB) {
-		Individual ind = new Individual(ga);
+		return crossover(iparentB, null);
+	}
+	
+	/**
+	 * Create a child of this individual and another one, reusing the buffers of an individual that is no longer used.
+	 * @param iparentB - Another individual
+	 * @param recycled - An individual of the same GA that is no longer used (it is overwritten), or null to create a new individual
+	 * @return the child (the recycled individual if one was given)
+	 */
+	public Individual crossover(IIndividual iparentB, Individual recycled) {
+		Individual ind = recycled == null ? new Individual(ga) : recycled.reset();
 		
 		Individual parentB = (Individual) iparentB;
 		
 		if(ga.random() < 0.5f) {
 			// One-point crossover
-			int crossoverPoint = (int) (ga.random() * representation.length);
-			for(int i = 0; i < crossoverPoint; i++)
-				ind.representation[i] = representation[i];
-			for(int i = crossoverPoint; i < representation.length; i++)
-				ind.representation[i] = parentB.representation[i];
+			int crossoverPoint = (int) (ga.random() * representation.size());
+			ind.representation.copyRange(representation, 0, crossoverPoint);
+			ind.representation.copyRange(parentB.representation, crossoverPoint, representation.size());
 		}
 		else {	
-			// Uniform crossover
-			for(int i = 0; i < ind.representation.length; i++)
-				ind.representation[i] = ga.random() < 0.6 ? representation[i] : parentB.representation[i]; 
+			// Uniform crossover (60% of genes from this parent), drawing 16 random bits per gene, so 4 genes per random word
+			RandomGenerator random = ga.getRandomGenerator();
+			long bits = 0;
+			for(int i = 0; i < ind.representation.size(); i++) {
+				if(i % 4 == 0)
+					bits = random.nextLong();
+				boolean fromA = (bits & 0xFFFF) < UNIFORM_CROSSOVER_THRESHOLD;
+				bits >>>= 16;
+				ind.representation.setCode(i, fromA ? representation.getCode(i) : parentB.representation.getCode(i));
+			}
 		}
 				
 		ind.updateSegmentRepresentation();
@@ -281,25 +450,31 @@ public class Individual implements IIndividual {
 	}
 
 	/**
-	 * Compute the edge value for the current segmentation of this individual
+	 * Compute the edge value for the current segmentation of this individual.
+	 * This is a straightforward reference implementation, cached values are computed by the ObjectiveEvaluator.
 	 * @return the edge value
 	 */
 	public float computeEdgeValue() {
+		ProblemInstance pi = ga.getProblemInstance();
 		float edgeValue = 0;
-		for(int i = 0 ; i < this.representation.length; i++) {
-			for(int n : ga.getProblemInstance().get4Neighbors(i))
-				edgeValue += dist(i, n);
+		for(int i = 0 ; i < this.representation.size(); i++) {
+			for(int neighbor = ProblemInstance.NEIGHBOR_RIGHT; neighbor <= ProblemInstance.NEIGHBOR_DOWN; neighbor++) {
+				int n = pi.getNeighbor(i, neighbor);
+				if(n != -1 && !sameSegment(i, n))
+					edgeValue += pi.getNeighborDistance(i, neighbor);
+			}
 		}
 		return edgeValue;
 	}
 
 	/**
-	 * Compute the connectivity value for the current segmentation of this individual
+	 * Compute the connectivity value for the current segmentation of this individual.
+	 * This is a straightforward reference implementation, cached values are computed by the ObjectiveEvaluator.
 	 * @return the connectivity
 	 */
 	public float computeConnectivity() {
 		float connectivity = 0;
-		for(int i = 0; i < this.representation.length; i++) {
+		for(int i = 0; i < this.representation.size(); i++) {
 			List<Integer> neighbors = ga.getProblemInstance().get8Neighbors(i);
 			for(int j = 0; j < neighbors.size(); j++) {
 				if(!sameSegment(i, neighbors.get(j)))
@@ -310,52 +485,40 @@ public class Individual implements IIndividual {
 	}
 
 	/**
-	 * Compute overall deviation for the current segmentation of this individual
+	 * Compute overall deviation for the current segmentation of this individual.
+	 * This is a straightforward reference implementation, cached values are computed by the ObjectiveEvaluator.
 	 * @return the overall deviation
 	 */
 	public float computeOverallDeviation() {
-		ProblemInstance pi = ga.getProblemInstance();
-		
-		float overallDeviation = 0;
+		double overallDeviation = 0;
 		
 		// For each segment
-		for(Segment s : segments) {
-			// First compute the centroid
-			float[] centroid = s.calculateCentroid(pi);
-			
-			// Then add up the deviation for the current segment
-			for(int i : s.getPixels()) {
-				float[] color = pi.getColorValue(i);
-				
-				overallDeviation += Math.sqrt(
-					Math.pow(color[0]-centroid[0], 2) +
-					Math.pow(color[1]-centroid[1], 2) +
-					Math.pow(color[2]-centroid[2], 2)
-				);
-			}
-		}
-		return -overallDeviation;
+		for(Segment s : segments)
+			overallDeviation += computeSegmentDeviation(s);
+		return (float) -overallDeviation;
 	}
 	
-	private int currentSegmentIndex;
-
 	/**
-	 * Recursively assign pixels to their segment starting at pixel index i
-	 * @param i - The starting pixel
-	 * @param visited - An array of visited pixels
+	 * Compute the deviation of a single segment (sum of the distances of its pixels to its centroid)
+	 * @param s - A segment of this individual
+	 * @return the deviation of the segment
 	 */
-	private void assignToSegment(int i, List<Integer> visited) {
-		int j = getPixelIndex(i, representation[i]);
-		if(j == -1 || visited.contains(i)) {
-			visited.add(i);
-			pixelSegments[i] = currentSegmentIndex++;
-		}
-		else {
-			visited.add(i);
-			if(pixelSegments[j] == -1)
-				assignToSegment(j, visited);
-			pixelSegments[i] = pixelSegments[j];
+	private double computeSegmentDeviation(Segment s) {
+		ProblemInstance pi = ga.getProblemInstance();
+		
+		// First compute the centroid
+		float[] centroid = s.calculateCentroid(pi);
+		
+		// Then add up the deviation for the current segment
+		double deviation = 0;
+		for(int i : s.getPixels()) {
+			deviation += Math.sqrt(
+				Math.pow(pi.getColorValue(i, 0)-centroid[0], 2) +
+				Math.pow(pi.getColorValue(i, 1)-centroid[1], 2) +
+				Math.pow(pi.getColorValue(i, 2)-centroid[2], 2)
+			);
 		}
+		return deviation;
 	}
 	
 	/**
@@ -363,28 +526,49 @@ public class Individual implements IIndividual {
 	 */
 	public void updateSegmentRepresentation() {
 		long time = System.nanoTime();
-		currentSegmentIndex = 0;
+		ProblemInstance pi = ga.getProblemInstance();
 		
-		// First assign each pixel to its segment
-		pixelSegments = new int[representation.length];
-		Arrays.fill(pixelSegments, -1);
-		for(int i = 0; i < pixelSegments.length; i++) {
-			if(pixelSegments[i] == -1)
-				assignToSegment(i, new ArrayList<Integer>());
+		// The deviation of each segment is no longer known
+		segmentDeviations = null;
+		
+		// Arrays shared with copies can't be overwritten
+		if(sharedBuffers) {
+			pixelSegments = null;
+			segmentPixels = null;
+			segmentOffsets = null;
 		}
+		
+		// First assign each pixel to its segment
+		if(pixelSegments == null || pixelSegments.length != representation.size())
+			pixelSegments = new int[representation.size()];
+		int numSegments = SegmentDecoder.decode(representation, pi.getImage().getWidth(), pi.getImage().getHeight(), pixelSegments);
 
 		// System.out.println("decoding took " + (System.nanoTime() - time) / 1000000 + "ms");
 		time = System.nanoTime();
 		
 		// Create representation as list of segments
 
-		// Start by creating the right amount of empty segments
-		segments = new ArrayList<Segment>();
-		for(int i = 0; i < currentSegmentIndex; i++)
-			segments.add(new Segment());
-		// Then add the pixels to the right segments
+		// Start by grouping the pixels by segment (counting sort), reusing the arrays of the previous segmentation
+		if(segmentPixels == null || segmentPixels.length != pixelSegments.length)
+			segmentPixels = new int[pixelSegments.length];
+		if(segmentOffsets == null || segmentOffsets.length < numSegments + 1)
+			segmentOffsets = new int[Math.max(numSegments + 1, segmentOffsets == null ? 0 : 2 * segmentOffsets.length)];
+		Arrays.fill(segmentOffsets, 0, numSegments + 1, 0);
+		for(int i = 0; i < pixelSegments.length; i++)
+			segmentOffsets[pixelSegments[i] + 1]++;
+		for(int s = 0; s < numSegments; s++)
+			segmentOffsets[s + 1] += segmentOffsets[s];
+		// Each placed pixel moves the offset of its segment forward, shift the offsets back afterwards
 		for(int i = 0; i < pixelSegments.length; i++)
-			segments.get(pixelSegments[i]).addPixel(i);	
+			segmentPixels[segmentOffsets[pixelSegments[i]]++] = i;
+		for(int s = numSegments; s > 0; s--)
+			segmentOffsets[s] = segmentOffsets[s - 1];
+		segmentOffsets[0] = 0;
+		
+		// Then create the segments as ranges of the array
+		segments = new ArrayList<Segment>(numSegments);
+		for(int s = 0; s < numSegments; s++)
+			segments.add(new Segment(segmentPixels, segmentOffsets[s], segmentOffsets[s + 1]));
 		
 		// System.out.println("transforming into list of segments took " + (System.nanoTime() - time) / 1000000 + "ms");
 	}
@@ -396,31 +580,8 @@ public class Individual implements IIndividual {
 	 * @return the pixel in the given direction from the source.
 	 */
 	public int getPixelIndex(int source, Direction dir) {
-		int none = -1;
-		int w = ga.getProblemInstance().getImage().getWidth();
-				
-		switch(dir) {
-			case NONE:
-				return none;
-			case LEFT:
-				if(source % w == 0)
-					return none;
-				return source - 1;
-			case RIGHT:
-				if(source % w == w - 1)
-					return none;
-				return source + 1;
-			case UP:
-				if(source < w)
-					return none;
-				return source - w;
-			case DOWN:
-				if(source >= w * (ga.getProblemInstance().getImage().getHeight()-1))
-					return none;
-				return source + w;
-			default:
-				return none;
-		}	
+		ProblemInstance pi = ga.getProblemInstance();
+		return SegmentDecoder.getPixelIndex(source, dir, pi.getImage().getWidth(), pi.getImage().getHeight());
 	}
 	
 	/**
@@ -429,7 +590,7 @@ public class Individual implements IIndividual {
 	public void print() {
 		String str = "";
 		int w = ga.getProblemInstance().getImage().getWidth();
-		for(int i = 0; i < representation.length; i++) {
+		for(int i = 0; i < representation.size(); i++) {
 			str += pixelSegments[i] + " ";
 			if((i+1) % w == 0)
 				str += "\n";
@@ -440,8 +601,8 @@ public class Individual implements IIndividual {
 	public void printDirectionArray() {
 		String str = "";
 		int w = ga.getProblemInstance().getImage().getWidth();
-		for(int i = 0; i < representation.length; i++) {
-			Direction d = representation[i];
+		for(int i = 0; i < representation.size(); i++) {
+			Direction d = representation.get(i);
 			str += (d == Direction.DOWN ? "_" : d == Direction.UP ? "^" : d == Direction.LEFT ? "<" : d == Direction.RIGHT ? ">" : d == Direction.NONE ? "o" : "?");
 			str += " ";
 			if((i+1) % w == 0)
@@ -450,18 +611,95 @@ public class Individual implements IIndividual {
 		System.out.println(str);	
 	}
 	
+	/**
+	 * Reset this individual in place so that it can be reused as a new individual of the same GA.
+	 * Its buffers (genotype, pixel segments and segment arrays) are kept, they are overwritten by the next decoding.
+	 * @return this individual
+	 */
+	private Individual reset() {
+		// Buffers shared with copies can't be reused
+		if(sharedBuffers) {
+			representation = new Genotype(representation.size());
+			pixelSegments = null;
+			segmentPixels = null;
+			segmentOffsets = null;
+			sharedBuffers = false;
+		}
+		segmentDeviations = null;
+		selectionIndex = -1;
+		edgeValue.needsUpdating();
+		connectivity.needsUpdating();
+		overallDeviation.needsUpdating();
+		fitness.needsUpdating();
+		return this;
+	}
+	
+	/**
+	 * Give this individual its own copy of the genotype and pixel segments if they may be shared with copies (copy-on-write).
+	 * The segment arrays are re-allocated by the next decoding.
+	 */
+	private void unshare() {
+		if(!sharedBuffers)
+			return;
+		representation = representation.copy();
+		pixelSegments = pixelSegments.clone();
+		segmentPixels = null;
+		segmentOffsets = null;
+		sharedBuffers = false;
+	}
+	
 	@Override
 	public IIndividual copy() {
-		Individual copy = new Individual(ga);
-		copy.representation = representation.clone();
-		copy.edgeValue = edgeValue.copy();
-		copy.connectivity = connectivity.copy();
-		copy.overallDeviation = overallDeviation.copy();
-		copy.fitness = fitness.copy();
-		copy.updateSegmentRepresentation();
+		return copy(ga);
+	}
+	
+	/**
+	 * Creates a copy of this individual that belongs to a given GA (e.g. another island).
+	 * @param ga - The GA the copy belongs to
+	 * @return a new Individual with the same genotype and objective values
+	 */
+	public Individual copy(SegmentationGA ga) {
+		return copyInto(new Individual(ga));
+	}
+	
+	/**
+	 * Creates a copy of this individual, reusing the buffers of an individual that is no longer used.
+	 * @param recycled - An individual of the same GA that is no longer used (it is overwritten), or null to create a new individual
+	 * @return the copy (the recycled individual if one was given)
+	 */
+	public Individual copy(Individual recycled) {
+		return recycled == null ? copy(ga) : copyInto(recycled.reset());
+	}
+	
+	/**
+	 * Overwrite a given individual with the genotype and objective values of this individual.
+	 * The genotype and decoded segmentation are shared (copy-on-write): they are copied by whichever individual modifies them first.
+	 */
+	private Individual copyInto(Individual copy) {
+		copy.representation = representation;
+		copy.pixelSegments = pixelSegments;
+		copy.segmentPixels = segmentPixels;
+		copy.segmentOffsets = segmentOffsets;
+		copy.segments = segments;
+		copy.sharedBuffers = true;
+		sharedBuffers = true;
+		// Copy cached values, keeping the copy's own update functions
+		copy.edgeValue.copyValue(edgeValue);
+		copy.connectivity.copyValue(connectivity);
+		copy.overallDeviation.copyValue(overallDeviation);
+		copy.fitness.copyValue(fitness);
+		copy.segmentDeviations = segmentDeviations;
 		return copy;
 	}
 	
+	/**
+	 * Get the genotype of this individual.
+	 * @return the genotype
+	 */
+	public Genotype getGenotype() {
+		return representation;
+	}
+	
 	/**
 	 * Get the segmentation as a list of segments.
 	 * @return a list of segments
@@ -477,4 +715,21 @@ public class Individual implements IIndividual {
 	public int[] getPixelSegments() {
 		return pixelSegments;
 	}
+	
+	/**
+	 * Get the index of this individual in the last set of individuals ranked by a population.
+	 * Populations use it to store selection data (e.g. ranks) in primitive arrays instead of maps.
+	 * @return the index of this individual, or -1 if it was never ranked
+	 */
+	public int getSelectionIndex() {
+		return selectionIndex;
+	}
+	
+	/**
+	 * Set the index of this individual in the set of individuals being ranked by a population.
+	 * @param selectionIndex - A dense index, between 0 (inclusive) and the number of ranked individuals (exclusive)
+	 */
+	public void setSelectionIndex(int selectionIndex) {
+		this.selectionIndex = selectionIndex;
+	}
 }
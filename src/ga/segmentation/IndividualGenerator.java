@@ -1,12 +1,11 @@
 package ga.segmentation;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-
-import ga.segmentation.Individual.Direction;
 import main.Main;
 import utils.FastPrimMST;
+import utils.MinimumSpanningTreeBuilder;
+import utils.ParallelBoruvkaMST;
+import utils.PrimMST;
+import utils.RandomGenerator;
 import utils.Tree;
 
 /**
@@ -14,25 +13,54 @@ import utils.Tree;
  * @author Kelian Baert & Caroline de Pourtales
  */
 public class IndividualGenerator {
+	// Algorithms that can be used to create minimum spanning trees
+	public static enum MSTAlgorithm {
+		PRIM(PrimMST::createMinimumSpanningTree), 
+		FAST_PRIM(FastPrimMST::createMinimumSpanningTree), 
+		PARALLEL_BORUVKA(ParallelBoruvkaMST::createMinimumSpanningTree);
+		
+		private MinimumSpanningTreeBuilder builder;
+		
+		private MSTAlgorithm(MinimumSpanningTreeBuilder builder) {
+			this.builder = builder;
+		}
+		
+		public MinimumSpanningTreeBuilder getBuilder() {
+			return builder;
+		}
+	};
+	
+	// Minimum number of children (direct or not) of the nodes where the initial segmentation can be broken
+	private static final int MIN_BREAKING_POINT_CHILDREN = 150;
+	
+	// Genotype code of each of the 4 cardinal neighbors (indexed by ProblemInstance.NEIGHBOR_* constants)
+	private static final byte[] NEIGHBOR_CODES = {Genotype.RIGHT, Genotype.LEFT, Genotype.UP, Genotype.DOWN};
+	
 	/**
-	 * Create an individual using a minimum spanning tree
-	 * @param pi - The problem instance for which to create a new individual
+	 * Create an individual using a minimum spanning tree. Can be called from several threads at once.
+	 * @param ga - The GA for which to create a new individual
+	 * @param random - The random generator to use (not shared with other threads)
 	 * @return a new individual
 	 */
-	public static Individual createRandomIndividual(SegmentationGA ga) {
+	public static Individual createRandomIndividual(SegmentationGA ga, RandomGenerator random) {
 		ProblemInstance pi = ga.getProblemInstance();
 		
 		// Generate a random position as the origin of the minimum spanning tree
-		int startingPos = (int) (ga.random() * pi.getImage().getWidth() * pi.getImage().getHeight());
+		int startingPos = (int) (random.nextDouble() * pi.getImage().getWidth() * pi.getImage().getHeight());
 		
-		// Generate the minimum spanning tree
+		// Generate the minimum spanning tree. The MST of the graph is the same up to ties regardless of the starting position,
+		// so by default the cached MST is simply re-rooted. Weights can be jittered to get more diverse trees.
 		long time = System.nanoTime();
-		Tree minSpanningTree = FastPrimMST.createMinimumSpanningTree(pi.getEuclideanDistanceGraph(), startingPos);
+		float jitter = Main.config.getFloat("mstWeightJitter");
+		MinimumSpanningTreeBuilder mstBuilder = MSTAlgorithm.valueOf(Main.config.get("mstAlgorithm").trim()).getBuilder();
+		Tree minSpanningTree = jitter > 0 ? 
+			mstBuilder.createMinimumSpanningTree(pi.createJitteredDistanceGraph(jitter, random), startingPos) :
+			pi.getMinimumSpanningTree(mstBuilder).reroot(startingPos);
 		long mstGenTime = (System.nanoTime() - time) / 1000000;
 		
 		// Turn the minimum spanning tree into a segmentation
 		time = System.nanoTime();
-		Direction[] genotype = createDirectionMatrixFromTree(ga, minSpanningTree);
+		Genotype genotype = createDirectionMatrixFromTree(ga, minSpanningTree, random);
 		long segTime = (System.nanoTime() - time) / 1000000;
 				
 		Individual ind = new Individual(ga, genotype);
@@ -41,82 +69,112 @@ public class IndividualGenerator {
 		return ind;
 	}
 
-	private static class Edge {
-		public int node;
-		public float weight;
-		public Edge(int node, float weight) {this.node = node; this.weight = weight;}
-	}
-
-	private static void getEdges(ProblemInstance pi, Tree tree, int node, List<Edge> edges) {
-		List<Integer> children = tree.getChildren(node);
-		for(int i = 0; i < children.size(); i++) {
-			int childNode = children.get(i);
-			edges.add(new Edge(childNode, pi.getEuclideanDistance(node, childNode)));
-			getEdges(pi, tree, childNode, edges);
-		}
-	}
-	
 	/**
 	 * Create a segmentation as a direction matrix from a minimum spanning tree.
+	 * Each node points to its parent, then the tree is broken into segments by cutting random edges among those with the highest weights.
 	 * @param tree - A minimum spanning tree
+	 * @param random - A random generator
 	 */
-	private static Direction[] createDirectionMatrixFromTree(SegmentationGA ga, Tree tree) {
+	private static Genotype createDirectionMatrixFromTree(SegmentationGA ga, Tree tree, RandomGenerator random) {
 		ProblemInstance pi = ga.getProblemInstance();
+		int width = pi.getImage().getWidth();
 		
-		// Create a blank genotype
-		Direction[] directions = new Direction[tree.getSize()];
-		directions[tree.getRootNode()] = Direction.NONE;
-		
-		// Begin recursive segmentation from the tree's root vertex
-		segmentChildren(pi, tree, tree.getRootNode(), directions);
-		
-		// Break single segment into multiple segment (break the segment where the rgb distance is the highest)
+		// Create a blank genotype (every gene is initially NONE)
+		Genotype directions = new Genotype(tree.getSize());
 		
-		// we first go through the tree in order to build a list of all edges in the tree associated with their weight in the graph
-		List<Edge> edges = new ArrayList<Edge>();
-		getEdges(pi, tree, tree.getRootNode(), edges);
-		
-		// remove edges that have a low number of children
-		Map<Integer, Integer> numberOfChildren = tree.computeNumberOfChildren();
-		for(int i = 0; i < edges.size(); i++) {
-			if(numberOfChildren.get(edges.get(i).node) < 150) {
-				edges.remove(i);
-				i--;
+		// Go through all edges of the tree, identified by their child node, to set the directions and
+		// list the edges where the segment can be broken (edges with a high enough number of children), along with their weight
+		int[] numberOfChildren = tree.computeNumberOfChildren();
+		int[] edges = new int[tree.getSize()];
+		float[] weights = new float[tree.getSize()];
+		int numEdges = 0;
+		for(int node = 0; node < tree.getSize(); node++) {
+			int parent = tree.getParent(node);
+			if(parent == Tree.NO_PARENT)
+				continue;
+			
+			int neighbor = getNeighborIndex(node, parent, width);
+			directions.setCode(node, NEIGHBOR_CODES[neighbor]);
+			if(numberOfChildren[node] >= MIN_BREAKING_POINT_CHILDREN) {
+				edges[numEdges] = node;
+				weights[numEdges] = pi.getNeighborDistance(node, neighbor);
+				numEdges++;
 			}
 		}
 		
 		int minSegments = Main.config.getInt("minInitialSegments"),
 			maxSegments = Main.config.getInt("maxInitialSegments");
 		
-		int numberOfSegments = minSegments + (int) (ga.random() * (maxSegments - minSegments));
+		int numberOfSegments = minSegments + (int) (random.nextDouble() * (maxSegments - minSegments));
 
-		// then sort the edges by decreasing weight and keep only the edges with good enough weight
-		edges.sort((a,b) -> (int) Math.signum(b.weight - a.weight));	
-		edges = edges.subList(0, Math.min(edges.size()-1, numberOfSegments*20));		
+		// then keep only the edges with good enough weight (they end up at the beginning of the arrays, in no particular order)
+		int numBestEdges = Math.max(0, Math.min(numEdges-1, numberOfSegments*20));
+		selectHighestWeights(edges, weights, numEdges, numBestEdges);
 		
 		// then break the segment
-		for(int i = 0; i < numberOfSegments - 1; i++) {
-			int edge = (int) (ga.random() * edges.size());
-			int breakingPoint = edges.get(edge).node;
-			directions[breakingPoint] = Direction.NONE;
-			edges.remove(edge);
+		for(int i = 0; i < numberOfSegments - 1 && numBestEdges > 0; i++) {
+			int edge = (int) (random.nextDouble() * numBestEdges);
+			directions.setCode(edges[edge], Genotype.NONE);
+			// Remove the edge by replacing it with the last one
+			numBestEdges--;
+			edges[edge] = edges[numBestEdges];
+			weights[edge] = weights[numBestEdges];
 		}
 		
 		return directions;
 	}
 	
 	/**
-	 * Recursively set the direction of all children of a given vertex in a given tree.
-	 * The direction is set to that each node points to its parent.
-	 * @param pi - A reference to the problem instance
-	 * @param tree - A minimum spanning tree
-	 * @param vertex - A vertex in the tree
-	 * @param directions - A directions array
+	 * Get the neighbor index (one of the ProblemInstance.NEIGHBOR_* constants) of a 4-neighbor of a pixel.
+	 * @param pixel - A pixel index
+	 * @param neighbor - The index of one of its 4 cardinal neighbors
+	 * @param width - The width of the image
+	 * @return the neighbor index of the given neighbor with regard to the pixel
+	 */
+	private static int getNeighborIndex(int pixel, int neighbor, int width) {
+		// Vertical neighbors are checked first, so that images with a width of 1 are handled correctly
+		int diff = neighbor - pixel;
+		return diff == width ? ProblemInstance.NEIGHBOR_DOWN :
+			diff == -width ? ProblemInstance.NEIGHBOR_UP :
+			diff == 1 ? ProblemInstance.NEIGHBOR_RIGHT :
+			ProblemInstance.NEIGHBOR_LEFT;
+	}
+	
+	/**
+	 * Partially reorder parallel arrays of items and weights so that the items with the highest weights come first (quickselect).
+	 * @param items - An array of items
+	 * @param weights - The weight of each item
+	 * @param size - The number of items in the arrays
+	 * @param k - The number of items to select
 	 */
-	private static void segmentChildren(ProblemInstance pi, Tree tree, int vertex, Direction[] directions) {
-		for(int child : tree.getChildren(vertex)) {
-			directions[child] = pi.getDirection(child, vertex);
-			segmentChildren(pi, tree, child, directions);
-		}	
+	private static void selectHighestWeights(int[] items, float[] weights, int size, int k) {
+		if(k <= 0 || k >= size)
+			return;
+		
+		// Find the item that should be at position k-1, partitioning the arrays around it
+		int lo = 0, hi = size - 1;
+		while(lo < hi) {
+			float pivot = weights[(lo + hi) >>> 1];
+			int i = lo, j = hi;
+			while(i <= j) {
+				while(weights[i] > pivot)
+					i++;
+				while(weights[j] < pivot)
+					j--;
+				if(i <= j) {
+					float weight = weights[i]; weights[i] = weights[j]; weights[j] = weight;
+					int item = items[i]; items[i] = items[j]; items[j] = item;
+					i++;
+					j--;
+				}
+			}
+			// Weights in [lo, j] are >= pivot, weights in [i, hi] are <= pivot
+			if(k - 1 <= j)
+				hi = j;
+			else if(k - 1 >= i)
+				lo = i;
+			else
+				break;
+		}
 	}
 }
@@ -0,0 +1,88 @@
+package ga.segmentation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A connection between an island worker process and the coordinator process, using a compact binary protocol.
+ * Each message starts with its type and the island index, followed by a list of genotypes (see Genotype.write).
+ * @author Kelian Baert & Caroline de Pourtales
+ */
+public class IslandConnection implements Closeable {
+	// Message types: a worker announcing itself (no genotypes), migrants, and the final result of a worker
+	public static final int HELLO = 0, MIGRANTS = 1, RESULT = 2;
+
+	private Socket socket;
+	private DataInputStream in;
+	private DataOutputStream out;
+
+	/**
+	 * Create a connection from a connected socket.
+	 * @param socket - A connected socket
+	 * @throws IOException
+	 */
+	public IslandConnection(Socket socket) throws IOException {
+		this.socket = socket;
+		socket.setTcpNoDelay(true);
+		this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+	}
+
+	/**
+	 * Send a message.
+	 * @param type - The message type (one of the constants of this class)
+	 * @param island - The index of the island the message is about
+	 * @param genotypes - The genotypes to send
+	 * @throws IOException
+	 */
+	public void send(int type, int island, List<Genotype> genotypes) throws IOException {
+		out.writeInt(type);
+		out.writeInt(island);
+		out.writeInt(genotypes.size());
+		for(Genotype genotype : genotypes)
+			genotype.write(out);
+		out.flush();
+	}
+
+	/**
+	 * Read a message of a given type, sent by <code>send</code>.
+	 * @param type - The expected message type
+	 * @param genotypes - A list in which to add the received genotypes
+	 * @return the index of the island the message is about
+	 * @throws IOException if the connection fails or if the message doesn't have the expected type
+	 */
+	public int receive(int type, List<Genotype> genotypes) throws IOException {
+		int receivedType = in.readInt();
+		if(receivedType != type)
+			throw new IOException("Unexpected island message type " + receivedType + " (expected " + type + ")");
+		int island = in.readInt();
+		int count = in.readInt();
+		for(int i = 0; i < count; i++)
+			genotypes.add(Genotype.read(in));
+		return island;
+	}
+
+	/**
+	 * Read a message of a given type, sent by <code>send</code>, ignoring the island index.
+	 * @param type - The expected message type
+	 * @return the received genotypes
+	 * @throws IOException if the connection fails or if the message doesn't have the expected type
+	 */
+	public List<Genotype> receive(int type) throws IOException {
+		List<Genotype> genotypes = new ArrayList<Genotype>();
+		receive(type, genotypes);
+		return genotypes;
+	}
+
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+}
@@ -0,0 +1,261 @@
+package ga.segmentation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import ga.IIndividual;
+import ga.IPopulation;
+import ga.segmentation.multiobjective.MultiObjectivePopulation;
+import ga.segmentation.multiobjective.ParetoArchive;
+
+/**
+ * Runs several GAs (islands) with independent populations, each on its own thread.
+ * Every few generations, the best individuals of each island migrate to other islands, where they replace the worst individuals.
+ * Generations are synchronized between islands, so that migrations are reproducible.
+ * @author Kelian Baert & Caroline de Pourtales
+ */
+public class IslandModel {
+	// Which islands the migrants of an island are sent to
+	public static enum Topology {RING, FULLY_CONNECTED};
+
+	private List<SegmentationGA> islands;
+	private Topology topology;
+
+	// Number of generations between migrations, and number of individuals sent by each island
+	private int migrationInterval, migrants;
+
+	private int generationsRan;
+
+	// One thread per island
+	private ExecutorService executor;
+
+	/**
+	 * Create an island model.
+	 * @param islands - The GAs to run (all GAs must have the same type and problem instance)
+	 * @param topology - The migration topology
+	 * @param migrationInterval - The number of generations between two migrations (0 to disable migrations)
+	 * @param migrants - The number of individuals sent by each island to each of its neighbors
+	 */
+	public IslandModel(List<SegmentationGA> islands, Topology topology, int migrationInterval, int migrants) {
+		this.islands = islands;
+		this.topology = topology;
+		this.migrationInterval = migrationInterval;
+		this.migrants = migrants;
+		this.generationsRan = 0;
+		this.executor = Executors.newFixedThreadPool(islands.size(), runnable -> {
+			Thread thread = new Thread(runnable, "Island");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Initialize the population of every island.
+	 */
+	public void initializePopulations() {
+		runOnIslands(SegmentationGA::initializePopulation);
+	}
+
+	/**
+	 * Run one generation on every island, then migrate individuals if needed.
+	 */
+	public void runGeneration() {
+		runOnIslands(SegmentationGA::runGeneration);
+		generationsRan++;
+		if(islands.size() > 1 && migrationInterval > 0 && generationsRan % migrationInterval == 0)
+			migrate();
+	}
+
+	/**
+	 * Print the current state of every island.
+	 */
+	public void printState() {
+		for(int i = 0; i < islands.size(); i++) {
+			if(islands.size() > 1)
+				System.out.println("Island #" + i + ":");
+			islands.get(i).printState();
+		}
+	}
+
+	/**
+	 * Send the best individuals of each island to its neighbors, where they replace the worst individuals.
+	 */
+	private void migrate() {
+		// Pick the emigrants of every island before inserting any of them
+		List<List<Individual>> emigrants = new ArrayList<List<Individual>>();
+		for(SegmentationGA island : islands)
+			emigrants.add(selectEmigrants(island, migrants));
+
+		for(int target = 0; target < islands.size(); target++) {
+			List<Individual> immigrants = new ArrayList<Individual>();
+			for(int i = 0; i < islands.size(); i++) {
+				if(sendsTo(topology, i, target, islands.size()))
+					immigrants.addAll(emigrants.get(i));
+			}
+			// Immigrants must belong to their new island's GA (for random numbers and parallel tasks),
+			// only the ones that will be inserted are copied (copies share their buffers with the emigrants)
+			SegmentationGA island = islands.get(target);
+			List<Individual> copies = new ArrayList<Individual>();
+			for(Individual immigrant : immigrants.subList(0, getMaxImmigrants(island, immigrants.size())))
+				copies.add(immigrant.copy(island));
+			insertImmigrants(island, copies);
+		}
+	}
+
+	/**
+	 * Check whether an island sends migrants to another one in a given topology.
+	 * @param topology - The migration topology
+	 * @param from - The index of the sending island
+	 * @param to - The index of the receiving island
+	 * @param numIslands - The total number of islands
+	 * @return true if island <code>from</code> sends migrants to island <code>to</code>, else false
+	 */
+	public static boolean sendsTo(Topology topology, int from, int to, int numIslands) {
+		return from != to && (topology == Topology.FULLY_CONNECTED || to == (from + 1) % numIslands);
+	}
+
+	/**
+	 * Select the best individuals of an island, using the selection comparator of its population.
+	 * @param island - A GA
+	 * @param count - The number of individuals to select
+	 * @return a list of at most <code>count</code> individuals, from best to worst
+	 */
+	public static List<Individual> selectEmigrants(SegmentationGA island, int count) {
+		List<IIndividual> sorted = getSortedIndividuals(island.getPopulation());
+		List<Individual> emigrants = new ArrayList<Individual>();
+		for(int i = 0; i < Math.min(count, sorted.size()); i++)
+			emigrants.add((Individual) sorted.get(i));
+		return emigrants;
+	}
+
+	/**
+	 * Insert given individuals in the population of an island, replacing the worst individuals (at most half of the population).
+	 * The replaced individuals are recycled by the population.
+	 * @param island - A GA
+	 * @param immigrants - The individuals to insert (they must belong to the island's GA)
+	 */
+	public static void insertImmigrants(SegmentationGA island, List<Individual> immigrants) {
+		Population pop = island.getPopulation();
+		List<IIndividual> individuals = getSortedIndividuals(pop);
+		int count = getMaxImmigrants(island, immigrants.size());
+		for(int i = 0; i < count; i++)
+			pop.discard(individuals.set(individuals.size() - 1 - i, immigrants.get(i)));
+		pop.setIndividuals(individuals);
+	}
+
+	/**
+	 * Get the number of immigrants inserted in an island (immigrants replace at most half of its population).
+	 * @param island - A GA
+	 * @param immigrants - The number of immigrants sent to the island
+	 * @return the number of immigrants that are inserted (the first ones of the list)
+	 */
+	private static int getMaxImmigrants(SegmentationGA island, int immigrants) {
+		return Math.min(immigrants, island.getPopulation().getSize() / 2);
+	}
+
+	/**
+	 * Get the final result of a GA: the first front for multi-objective GAs, or else the fittest individual.
+	 * @param ga - A GA
+	 * @return a list of individuals
+	 */
+	public static List<Individual> getResult(SegmentationGA ga) {
+		if(ga.getPopulation() instanceof MultiObjectivePopulation)
+			return ((MultiObjectivePopulation) ga.getPopulation()).getFirstFront();
+		List<Individual> result = new ArrayList<Individual>();
+		result.add((Individual) ga.getPopulation().getFittestIndividual());
+		return result;
+	}
+
+	/**
+	 * Compute the first front of a given set of individuals.
+	 * @param individuals - Individuals from one or several populations
+	 * @return the individuals that aren't dominated by any other individual
+	 */
+	public static List<Individual> mergeFirstFront(List<IIndividual> individuals) {
+		ParetoArchive merged = new ParetoArchive();
+		for(IIndividual ind : individuals)
+			merged.insert((Individual) ind);
+		return merged.getMembers();
+	}
+
+	/**
+	 * Get the fittest of given individuals.
+	 * @param individuals - A list of individuals
+	 * @return the individual with the highest fitness
+	 */
+	public static Individual getFittest(List<Individual> individuals) {
+		Individual fittest = null;
+		for(Individual ind : individuals) {
+			if(fittest == null || ind.getFitness() > fittest.getFitness())
+				fittest = ind;
+		}
+		return fittest;
+	}
+
+	/**
+	 * Get the fittest individual among all islands.
+	 * @return the individual with the highest fitness
+	 */
+	public Individual getFittestIndividual() {
+		List<Individual> fittest = new ArrayList<Individual>();
+		for(SegmentationGA island : islands)
+			fittest.add((Individual) island.getPopulation().getFittestIndividual());
+		return getFittest(fittest);
+	}
+
+	/**
+	 * Get the first front of the union of all island populations (for multi-objective islands).
+	 * @return the individuals of all islands that aren't dominated by any other individual
+	 */
+	public List<Individual> getFirstFront() {
+		List<IIndividual> all = new ArrayList<IIndividual>();
+		for(SegmentationGA island : islands)
+			all.addAll(island.getPopulation().getIndividuals());
+		return mergeFirstFront(all);
+	}
+
+	/**
+	 * Get the islands of this model.
+	 * @return the list of GAs
+	 */
+	public List<SegmentationGA> getIslands() {
+		return islands;
+	}
+
+	/**
+	 * Get a copy of the individuals of a population, sorted from best to worst using the population's selection comparator.
+	 */
+	private static List<IIndividual> getSortedIndividuals(IPopulation pop) {
+		List<IIndividual> sorted = new ArrayList<IIndividual>(pop.getIndividuals());
+		sorted.sort(pop.getSelectionComparator());
+		return sorted;
+	}
+
+	/**
+	 * Run an action on every island in parallel, and wait for all of them to finish.
+	 */
+	private void runOnIslands(Consumer<SegmentationGA> action) {
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for(SegmentationGA island : islands) {
+			tasks.add(() -> {
+				action.accept(island);
+				return null;
+			});
+		}
+		try {
+			for(Future<Void> future : executor.invokeAll(tasks))
+				future.get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch(ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+}
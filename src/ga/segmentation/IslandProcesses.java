@@ -0,0 +1,258 @@
+package ga.segmentation;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import ga.IIndividual;
+import ga.segmentation.multiobjective.MultiObjectiveSegmentationGA;
+import main.Main;
+import utils.RandomGenerator;
+
+/**
+ * An island model in which each island runs in its own worker process (with its own heap and garbage collector).
+ * A coordinator process starts the workers, relays migrants between them over local TCP connections, and gathers their results.
+ * Migrations are synchronous: every worker sends its migrants, then waits for its immigrants, so that seeded runs are reproducible.
+ * @author Kelian Baert & Caroline de Pourtales
+ */
+public class IslandProcesses {
+	// Command-line argument that starts the program as an island worker, followed by the coordinator port, the island index and the seed
+	public static final String WORKER_ARGUMENT = "--island-worker";
+
+	// Interval between two checks of the worker processes while waiting for them to connect (in ms)
+	private static final int HANDSHAKE_POLL_INTERVAL = 500;
+
+	/**
+	 * Run the coordinator: start the worker processes, relay migrants between them and gather their results.
+	 * @param ga - A GA used to rebuild the received individuals (its population isn't used)
+	 * @param numWorkers - The number of worker processes (islands)
+	 * @param random - The random generator used to seed the workers
+	 * @param generations - The number of generations run by each worker
+	 * @param migrationInterval - The number of generations between two migrations (0 to disable migrations)
+	 * @param topology - The migration topology
+	 * @param onFinish - Called once with the result: the first front of the union of the final populations for multi-objective GAs, 
+	 * or else the fittest individual. If this process is interrupted, the workers are stopped and it is called from a shutdown hook 
+	 * with the result of the best individuals received so far (the last migrants or final results of each island).
+	 * @throws IOException if a worker couldn't be started or if a connection failed
+	 */
+	public static void runCoordinator(SegmentationGA ga, int numWorkers, RandomGenerator random,
+			int generations, int migrationInterval, IslandModel.Topology topology, Consumer<List<Individual>> onFinish) throws IOException {
+		List<Process> processes = new ArrayList<Process>();
+		IslandConnection[] connections = new IslandConnection[numWorkers];
+
+		// Latest individuals received from each island (its last migrants, then its final result)
+		List<List<Genotype>> received = new ArrayList<List<Genotype>>();
+		for(int i = 0; i < numWorkers; i++)
+			received.add(new ArrayList<Genotype>());
+		AtomicBoolean finished = new AtomicBoolean(false);
+
+		// On interruption, stop the workers and save the best individuals received so far
+		Thread shutdownHook = new Thread(() -> {
+			destroy(processes);
+			if(!finished.getAndSet(true)) {
+				System.out.println("Interrupted, using the best individuals received from the islands so far");
+				onFinish.accept(getResult(ga, received));
+			}
+		});
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+		try(ServerSocket server = new ServerSocket(0, numWorkers, InetAddress.getLoopbackAddress())) {
+			// Start the workers with the classpath of this process and the configured JVM options
+			// (the options of this process aren't forwarded: debugger agents, log files or JMX ports can't be shared by several JVMs)
+			String jvmArgs = Main.config.get("islandWorkerJvmArgs");
+			for(int i = 0; i < numWorkers; i++) {
+				List<String> command = new ArrayList<String>();
+				command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+				if(jvmArgs != null && !jvmArgs.trim().isEmpty())
+					command.addAll(Arrays.asList(jvmArgs.trim().split("\\s+")));
+				command.add("-cp");
+				command.add(System.getProperty("java.class.path"));
+				command.add(Main.class.getName());
+				command.add(WORKER_ARGUMENT);
+				command.add(String.valueOf(server.getLocalPort()));
+				command.add(String.valueOf(i));
+				command.add(String.valueOf(random.nextLong()));
+				Process process = new ProcessBuilder(command).inheritIO().start();
+				synchronized(processes) {
+					processes.add(process);
+				}
+			}
+
+			// Wait for all workers to connect, failing if a worker exits before connecting
+			// (once connected, a worker that exits is detected as the end of its connection)
+			server.setSoTimeout(HANDSHAKE_POLL_INTERVAL);
+			for(int i = 0; i < numWorkers; i++) {
+				Socket socket = null;
+				while(socket == null) {
+					try {
+						socket = server.accept();
+					} catch(SocketTimeoutException e) {
+						checkWorkersStarted(processes, connections);
+					}
+				}
+				IslandConnection connection = new IslandConnection(socket);
+				int island = connection.receive(IslandConnection.HELLO, new ArrayList<Genotype>());
+				if(island < 0 || island >= numWorkers || connections[island] != null) {
+					connection.close();
+					throw new IOException("Unexpected island index " + island + " in the handshake of a worker");
+				}
+				connections[island] = connection;
+			}
+
+			// Relay the migrants
+			int migrations = migrationInterval > 0 ? generations / migrationInterval : 0;
+			for(int m = 0; m < migrations; m++) {
+				List<List<Genotype>> emigrants = new ArrayList<List<Genotype>>();
+				for(int i = 0; i < numWorkers; i++) {
+					emigrants.add(connections[i].receive(IslandConnection.MIGRANTS));
+					setReceived(received, i, emigrants.get(i));
+				}
+				for(int target = 0; target < numWorkers; target++) {
+					List<Genotype> immigrants = new ArrayList<Genotype>();
+					for(int i = 0; i < numWorkers; i++) {
+						if(IslandModel.sendsTo(topology, i, target, numWorkers))
+							immigrants.addAll(emigrants.get(i));
+					}
+					connections[target].send(IslandConnection.MIGRANTS, target, immigrants);
+				}
+			}
+
+			// Gather the results
+			for(int i = 0; i < numWorkers; i++)
+				setReceived(received, i, connections[i].receive(IslandConnection.RESULT));
+
+			if(!finished.getAndSet(true))
+				onFinish.accept(getResult(ga, received));
+		} catch(IOException e) {
+			// Connections are lost when the shutdown hook stops the workers, the result was already handled by the hook
+			if(!finished.get())
+				throw e;
+		} finally {
+			for(IslandConnection connection : connections) {
+				if(connection != null)
+					connection.close();
+			}
+			destroy(processes);
+			try {
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			} catch(IllegalStateException e) {
+				// The JVM is already shutting down, the hook is running
+			}
+		}
+	}
+
+	/**
+	 * Run an island worker: run the GA, exchanging migrants with the coordinator, then send the final result to the coordinator.
+	 * @param ga - The GA of this island (with an uninitialized population)
+	 * @param port - The port of the coordinator (on the loopback interface)
+	 * @param island - The index of this island
+	 * @param generations - The number of generations to run
+	 * @param migrationInterval - The number of generations between two migrations (0 to disable migrations)
+	 * @param migrants - The number of individuals sent to the coordinator at each migration
+	 * @throws IOException if the connection with the coordinator failed
+	 */
+	public static void runWorker(SegmentationGA ga, int port, int island, int generations, int migrationInterval, int migrants) throws IOException {
+		try(IslandConnection connection = new IslandConnection(new Socket(InetAddress.getLoopbackAddress(), port))) {
+			connection.send(IslandConnection.HELLO, island, new ArrayList<Genotype>());
+
+			ga.initializePopulation();
+			for(int i = 0; i < generations; i++) {
+				long time = System.nanoTime();
+				System.out.println("---------- Island #" + island + ": running generation #" + i + " ----------");
+				ga.runGeneration();
+				ga.printState();
+				System.out.println("(" + (System.nanoTime() - time) / 1000000 + " ms)");
+
+				if(migrationInterval > 0 && (i+1) % migrationInterval == 0) {
+					connection.send(IslandConnection.MIGRANTS, island, getGenotypes(IslandModel.selectEmigrants(ga, migrants)));
+					List<Individual> immigrants = new ArrayList<Individual>();
+					for(Genotype genotype : connection.receive(IslandConnection.MIGRANTS))
+						immigrants.add(new Individual(ga, genotype));
+					IslandModel.insertImmigrants(ga, immigrants);
+				}
+			}
+
+			connection.send(IslandConnection.RESULT, island, getGenotypes(IslandModel.getResult(ga)));
+		}
+	}
+
+	/**
+	 * Replace the individuals received from an island.
+	 * @param received - The latest individuals received from each island
+	 * @param island - The index of the island
+	 * @param genotypes - The genotypes received from the island
+	 */
+	private static void setReceived(List<List<Genotype>> received, int island, List<Genotype> genotypes) {
+		synchronized(received) {
+			received.set(island, genotypes);
+		}
+	}
+
+	/**
+	 * Compute the result of the island model from the individuals received from the islands.
+	 * @param ga - A GA used to rebuild the received individuals
+	 * @param received - The latest individuals received from each island
+	 * @return the first front of the received individuals for multi-objective GAs, or else the fittest one (empty if none was received)
+	 */
+	private static List<Individual> getResult(SegmentationGA ga, List<List<Genotype>> received) {
+		List<IIndividual> individuals = new ArrayList<IIndividual>();
+		synchronized(received) {
+			for(List<Genotype> genotypes : received) {
+				for(Genotype genotype : genotypes)
+					individuals.add(new Individual(ga, genotype));
+			}
+		}
+
+		if(ga instanceof MultiObjectiveSegmentationGA)
+			return IslandModel.mergeFirstFront(individuals);
+		List<Individual> result = new ArrayList<Individual>();
+		if(!individuals.isEmpty()) {
+			List<Individual> fittest = new ArrayList<Individual>();
+			for(IIndividual ind : individuals)
+				fittest.add((Individual) ind);
+			result.add(IslandModel.getFittest(fittest));
+		}
+		return result;
+	}
+
+	/**
+	 * Stop the worker processes that were started so far.
+	 */
+	private static void destroy(List<Process> processes) {
+		synchronized(processes) {
+			for(Process process : processes)
+				process.destroy();
+		}
+	}
+
+	/**
+	 * Check that the workers that haven't connected yet are still running.
+	 * @param processes - The worker processes, by island index
+	 * @param connections - The connections of the workers that have connected, by island index (null for the others)
+	 * @throws IOException if a worker exited before connecting
+	 */
+	private static void checkWorkersStarted(List<Process> processes, IslandConnection[] connections) throws IOException {
+		for(int i = 0; i < processes.size(); i++) {
+			if(connections[i] == null && !processes.get(i).isAlive())
+				throw new IOException("Island worker #" + i + " exited with code " + processes.get(i).exitValue() + " before connecting");
+		}
+	}
+
+	/**
+	 * Get the genotypes of given individuals.
+	 */
+	private static List<Genotype> getGenotypes(List<Individual> individuals) {
+		List<Genotype> genotypes = new ArrayList<Genotype>();
+		for(Individual ind : individuals)
+			genotypes.add(ind.getGenotype());
+		return genotypes;
+	}
+}
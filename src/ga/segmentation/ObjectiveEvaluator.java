@@ -0,0 +1,177 @@
+package ga.segmentation;
+
+/**
+ * Computes the objectives of a segmentation (edge value, connectivity and overall deviation) in two passes over flat arrays.
+ * The first pass handles pixel pairs and accumulates segment centroids, the second one computes the deviation of each pixel.
+ * @author Kelian Baert & Caroline de Pourtales
+ */
+public class ObjectiveEvaluator {
+	// Indices of the objectives in the output array
+	public static final int EDGE_VALUE = 0, CONNECTIVITY = 1, OVERALL_DEVIATION = 2;
+
+	// Connectivity weight 1/(j+1) of each of the 8 neighbors, for each neighbor bitmask (see ProblemInstance.getNeighborMask).
+	// Neighbor lists skip the neighbors outside of the image, so j is the number of existing neighbors that come before.
+	private static final float[][] CONNECTIVITY_WEIGHTS = new float[256][8];
+	static {
+		for(int mask = 0; mask < 256; mask++) {
+			for(int neighbor = 0; neighbor < 8; neighbor++) {
+				if((mask & (1 << neighbor)) != 0)
+					CONNECTIVITY_WEIGHTS[mask][neighbor] = 1.0f / (Integer.bitCount(mask & ((1 << neighbor) - 1)) + 1);
+			}
+		}
+	}
+
+	// Reusable per-segment accumulators, one set per thread
+	private static final ThreadLocal<double[]> colorSumsBuffer = ThreadLocal.withInitial(() -> new double[0]);
+	private static final ThreadLocal<int[]> pixelCountsBuffer = ThreadLocal.withInitial(() -> new int[0]);
+
+	// The problem instance, used for neighbor iteration and precomputed neighbor distances
+	private final ProblemInstance pi;
+
+	// Color channels of the image, indexed by pixel index (shared with the problem instance)
+	private final float[] channel0, channel1, channel2;
+
+	/**
+	 * Create an evaluator for a given problem instance.
+	 * @param pi - The problem instance
+	 */
+	public ObjectiveEvaluator(ProblemInstance pi) {
+		this.pi = pi;
+		this.channel0 = pi.getColorChannel(0);
+		this.channel1 = pi.getColorChannel(1);
+		this.channel2 = pi.getColorChannel(2);
+	}
+
+	/**
+	 * Compute all objectives for a given segmentation.
+	 * @param pixelSegments - The segment of each pixel, with segments numbered from 0 to numSegments (exclusive)
+	 * @param numSegments - The number of segments
+	 * @param objectives - An array of length 3 in which to store the objectives, indexed by the constants of this class
+	 * @param segmentDeviations - An array of length numSegments in which to store the deviation of each segment
+	 */
+	public void evaluate(int[] pixelSegments, int numSegments, float[] objectives, double[] segmentDeviations) {
+		double[] colorSums = getColorSumsBuffer(numSegments * 3);
+		int[] pixelCounts = getPixelCountsBuffer(numSegments);
+		for(int s = 0; s < numSegments; s++) {
+			colorSums[3*s] = colorSums[3*s+1] = colorSums[3*s+2] = 0;
+			pixelCounts[s] = 0;
+			segmentDeviations[s] = 0;
+		}
+
+		// First pass: visit each pair of neighbors once, and accumulate the color of each segment
+		int offsetRight = pi.getNeighborOffset(ProblemInstance.NEIGHBOR_RIGHT),
+			offsetDown = pi.getNeighborOffset(ProblemInstance.NEIGHBOR_DOWN),
+			offsetDownRight = pi.getNeighborOffset(ProblemInstance.NEIGHBOR_DOWN_RIGHT),
+			offsetDownLeft = pi.getNeighborOffset(ProblemInstance.NEIGHBOR_DOWN_LEFT);
+		double edgeValue = 0, connectivity = 0;
+		for(int i = 0; i < pixelSegments.length; i++) {
+			int seg = pixelSegments[i];
+			int mask = pi.getNeighborMask(i);
+			float[] weights = CONNECTIVITY_WEIGHTS[mask];
+
+			colorSums[3*seg] += channel0[i];
+			colorSums[3*seg+1] += channel1[i];
+			colorSums[3*seg+2] += channel2[i];
+			pixelCounts[seg]++;
+
+			// Each pair counts twice: once from each pixel
+			int n = i + offsetRight;
+			if((mask & (1 << ProblemInstance.NEIGHBOR_RIGHT)) != 0 && pixelSegments[n] != seg) {
+				edgeValue += 2 * pi.getNeighborDistance(i, ProblemInstance.NEIGHBOR_RIGHT);
+				connectivity += weights[ProblemInstance.NEIGHBOR_RIGHT] + CONNECTIVITY_WEIGHTS[pi.getNeighborMask(n)][ProblemInstance.NEIGHBOR_LEFT];
+			}
+			n = i + offsetDown;
+			if((mask & (1 << ProblemInstance.NEIGHBOR_DOWN)) != 0 && pixelSegments[n] != seg) {
+				edgeValue += 2 * pi.getNeighborDistance(i, ProblemInstance.NEIGHBOR_DOWN);
+				connectivity += weights[ProblemInstance.NEIGHBOR_DOWN] + CONNECTIVITY_WEIGHTS[pi.getNeighborMask(n)][ProblemInstance.NEIGHBOR_UP];
+			}
+			n = i + offsetDownRight;
+			if((mask & (1 << ProblemInstance.NEIGHBOR_DOWN_RIGHT)) != 0 && pixelSegments[n] != seg)
+				connectivity += weights[ProblemInstance.NEIGHBOR_DOWN_RIGHT] + CONNECTIVITY_WEIGHTS[pi.getNeighborMask(n)][ProblemInstance.NEIGHBOR_UP_LEFT];
+			n = i + offsetDownLeft;
+			if((mask & (1 << ProblemInstance.NEIGHBOR_DOWN_LEFT)) != 0 && pixelSegments[n] != seg)
+				connectivity += weights[ProblemInstance.NEIGHBOR_DOWN_LEFT] + CONNECTIVITY_WEIGHTS[pi.getNeighborMask(n)][ProblemInstance.NEIGHBOR_UP_RIGHT];
+		}
+
+		// Turn the color sums into centroids
+		for(int s = 0; s < numSegments; s++) {
+			colorSums[3*s] /= pixelCounts[s];
+			colorSums[3*s+1] /= pixelCounts[s];
+			colorSums[3*s+2] /= pixelCounts[s];
+		}
+
+		// Second pass: add up the distance of each pixel to the centroid of its segment
+		double overallDeviation = 0;
+		for(int i = 0; i < pixelSegments.length; i++) {
+			int seg = pixelSegments[i];
+			segmentDeviations[seg] += distanceToCentroid(i, colorSums[3*seg], colorSums[3*seg+1], colorSums[3*seg+2]);
+		}
+		for(int s = 0; s < numSegments; s++)
+			overallDeviation += segmentDeviations[s];
+
+		objectives[EDGE_VALUE] = (float) edgeValue;
+		objectives[CONNECTIVITY] = (float) -connectivity;
+		objectives[OVERALL_DEVIATION] = (float) -overallDeviation;
+	}
+
+	/**
+	 * Compute the deviation of a single segment (sum of the distances of its pixels to its centroid).
+	 * Gives the same result as the per-segment deviations computed by <code>evaluate</code>.
+	 * @param segment - A segment
+	 * @return the deviation of the segment
+	 */
+	public double computeSegmentDeviation(Segment segment) {
+		int size = segment.getNumPixels();
+		double c0 = 0, c1 = 0, c2 = 0;
+		for(int k = 0; k < size; k++) {
+			int i = segment.getPixel(k);
+			c0 += channel0[i];
+			c1 += channel1[i];
+			c2 += channel2[i];
+		}
+		c0 /= size;
+		c1 /= size;
+		c2 /= size;
+
+		double deviation = 0;
+		for(int k = 0; k < size; k++)
+			deviation += distanceToCentroid(segment.getPixel(k), c0, c1, c2);
+		return deviation;
+	}
+
+	/**
+	 * Get the connectivity weight of a neighbor, i.e. 1/(j+1) where j is its index in the 8 neighbors of a pixel.
+	 * @param i - A pixel index
+	 * @param neighbor - A neighbor index (one of the ProblemInstance.NEIGHBOR_* constants)
+	 * @return the connectivity weight of the given neighbor with regard to i
+	 */
+	public float getConnectivityWeight(int i, int neighbor) {
+		return CONNECTIVITY_WEIGHTS[pi.getNeighborMask(i)][neighbor];
+	}
+
+	/**
+	 * Get the distance between the color of a pixel and a given centroid.
+	 */
+	private double distanceToCentroid(int i, double c0, double c1, double c2) {
+		double d0 = channel0[i] - c0, d1 = channel1[i] - c1, d2 = channel2[i] - c2;
+		return Math.sqrt(d0*d0 + d1*d1 + d2*d2);
+	}
+
+	private static double[] getColorSumsBuffer(int size) {
+		double[] buffer = colorSumsBuffer.get();
+		if(buffer.length < size) {
+			buffer = new double[size];
+			colorSumsBuffer.set(buffer);
+		}
+		return buffer;
+	}
+
+	private static int[] getPixelCountsBuffer(int size) {
+		int[] buffer = pixelCountsBuffer.get();
+		if(buffer.length < size) {
+			buffer = new int[size];
+			pixelCountsBuffer.set(buffer);
+		}
+		return buffer;
+	}
+}
@@ -1,8 +1,12 @@
 package ga.segmentation;
 
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
 
 import ga.GeneticAlgorithm;
 import ga.IIndividual;
@@ -11,33 +15,63 @@ import main.Main;
 import main.Main.Mode;
 
 public class Population extends SimplePopulation {
+	// Individuals that left the population, whose buffers are reused for the next offspring (double buffering)
+	private Deque<Individual> recycled;
+	
 	public Population(GeneticAlgorithm ga) {
 		super(ga);
+		recycled = new ArrayDeque<Individual>();
 	}
 
 	@Override
 	public List<IIndividual> createOffspring() {
 		float crossoverRate = ga.getCrossoverRate();
 		
-		// Use tournament selection
 		int numOffsprings = getSize() - ga.getElites();
-		int k = Main.config.getInt(Main.mode == Mode.WEIGHTED_SUM_GA ? "WSGA_tournamentSelectionSize" : "MOEA_tournamentSelectionSize");
-		float p = Main.config.getFloat(Main.mode == Mode.WEIGHTED_SUM_GA ? "WSGA_tournamentSelectionP" : "MOEA_tournamentSelectionP");
+		String prefix = Main.mode == Mode.WEIGHTED_SUM_GA ? "WSGA_" : "MOEA_";
+		SelectionMethod method = SelectionMethod.valueOf(Main.config.get(prefix + "selection").trim());
 		
-		List<IIndividual> offspring = new ArrayList<IIndividual>();
+		// Tournaments select parents one by one, the other methods select all the parents that may be needed at once
+		Supplier<IIndividual> selection;
+		if(method == SelectionMethod.TOURNAMENT) {
+			int k = Main.config.getInt(prefix + "tournamentSelectionSize");
+			float p = Main.config.getFloat(prefix + "tournamentSelectionP");
+			selection = () -> tournamentSelection(k, p);
+		}
+		else {
+			List<IIndividual> parents = method == SelectionMethod.RANK ? 
+				rankSelection(numOffsprings + 1, Main.config.getFloat(prefix + "rankSelectionPressure")) : 
+				stochasticUniversalSampling(numOffsprings + 1);
+			selection = parents.iterator()::next;
+		}
+		
+		// Select the parents and the recycled individuals here, then create the offspring on the worker threads (parents are only read)
+		List<Callable<IIndividual>> offspring = new ArrayList<Callable<IIndividual>>();
 		while(offspring.size() < numOffsprings) {
-			IIndividual parent1 = tournamentSelection(k, p); 
+			Individual parent1 = (Individual) selection.get();
 			// Crossover
 			if(ga.random() < crossoverRate) {
-				IIndividual parent2 = tournamentSelection(k, p);
-				offspring.add(parent1.crossover(parent2));
-				if(offspring.size() < numOffsprings)
-					offspring.add(parent2.crossover(parent1));
+				Individual parent2 = (Individual) selection.get();
+				Individual child1 = recycled.poll();
+				offspring.add(() -> parent1.crossover(parent2, child1));
+				if(offspring.size() < numOffsprings) {
+					Individual child2 = recycled.poll();
+					offspring.add(() -> parent2.crossover(parent1, child2));
+				}
 			}
 			// Copy
-			else
-				offspring.add(parent1.copy());
+			else {
+				Individual copy = recycled.poll();
+				offspring.add(() -> parent1.copy(copy));
+			}
 		}
-		return offspring;
+		return ga.runInParallel(offspring);
+	}
+	
+	@Override
+	protected void discard(IIndividual ind) {
+		// Keep at most one generation of individuals
+		if(recycled.size() < getSize())
+			recycled.add((Individual) ind);
 	}
-}
\ No newline at end of file
+}
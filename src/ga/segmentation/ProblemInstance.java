@@ -7,7 +7,11 @@ import java.util.List;
 
 import ga.IProblemInstance;
 import ga.segmentation.Individual.Direction;
+import utils.GridGraph;
 import utils.ImageUtils;
+import utils.MinimumSpanningTreeBuilder;
+import utils.RandomGenerator;
+import utils.Tree;
 import utils.WeightedGraph;
 
 /**
@@ -17,6 +21,17 @@ import utils.WeightedGraph;
 public class ProblemInstance implements IProblemInstance {
 	public static enum ColorMode {RGB, HSB};
 	
+	// Indices of the 8 neighbors of a pixel, in the order used by get8Neighbors (the first 4 are the cardinal neighbors, in the order used by get4Neighbors)
+	public static final int NEIGHBOR_RIGHT = 0, NEIGHBOR_LEFT = 1, NEIGHBOR_UP = 2, NEIGHBOR_DOWN = 3,
+		NEIGHBOR_UP_RIGHT = 4, NEIGHBOR_DOWN_RIGHT = 5, NEIGHBOR_UP_LEFT = 6, NEIGHBOR_DOWN_LEFT = 7;
+	
+	// Horizontal and vertical offsets of each neighbor
+	private static final int[] NEIGHBOR_DX = {1, -1, 0, 0, 1, 1, -1, -1},
+		NEIGHBOR_DY = {0, 0, -1, 1, -1, 1, -1, 1};
+	
+	// Opposite of each neighbor
+	private static final int[] OPPOSITE_NEIGHBORS = {1, 0, 3, 2, 7, 6, 5, 4};
+	
 	// The problem instance's image
 	private BufferedImage image;
 	
@@ -29,21 +44,32 @@ public class ProblemInstance implements IProblemInstance {
 	// Scaling factor
 	private float imageScaling;
 	
-	// Store the RGB of each pixel as a matrix of [r, g, b] integer arrays
-	private float[][][] rgb;
-	
-	// Store the HSB (hue, saturation, brightness) of each pixel as a matrix of [h, s, b] integer arrays
-	private float[][][] hsb;
+	// Store the color value of each pixel (RGB or HSB depending on the color mode) as one array per channel, indexed by pixel index
+	private float[][] colorChannels;
 	
 	// The color mode (HSB or RGB)
 	private ColorMode colorMode;
 	
+	// Store the color distance from each pixel to each of its 8 neighbors, indexed by neighbor then by pixel index (0 if there is no such neighbor)
+	private float[][] neighborDistances;
+	
 	// A graph in which each pixel is connected to its cardinal neighbors with weights equal to the euclidean distances in HSB space
 	private WeightedGraph euclideanDistanceGraph;
 	
-	// Cache pixel neighbors to save time
-	private List<List<Integer>> pixel4NeighborsCache;
-	private List<List<Integer>> pixel8NeighborsCache;
+	// Store which of its 8 neighbors each pixel has, as a bitmask (bit k is set if neighbor k is inside the image)
+	private byte[] neighborMasks;
+	
+	// Offset to add to a pixel index to get each of its neighbors
+	private int[] neighborOffsets;
+	
+	// Computes the objectives of segmentations of the image
+	private ObjectiveEvaluator objectiveEvaluator;
+	
+	// A minimum spanning tree of the euclidean distance graph, computed upon the first request
+	private Tree minimumSpanningTree;
+	
+	// Objective values of already evaluated segmentations, created upon the first request
+	private FitnessCache fitnessCache;
 	
 	/**
 	 * Create a new problem instance
@@ -62,39 +88,67 @@ public class ProblemInstance implements IProblemInstance {
 		
 		int w = image.getWidth(), h = image.getHeight();
 		
-		// Store the RGB and HSB of each pixel in three-dimensional arrays of shape (width, height, 3)
-		rgb = new float[w][h][3];
-		hsb = new float[w][h][3];
-		for(int x = 0; x < w; x++) {
-			for(int y = 0; y < h; y++) {
+		// Store the color value of each pixel in the active color mode, as three flat arrays of size width*height
+		colorChannels = new float[3][w*h];
+		float[] hsb = new float[3];
+		for(int y = 0; y < h; y++) {
+			for(int x = 0; x < w; x++) {
+				int i = y*w+x;
 				Color c = new Color(getImage().getRGB(x, y));
-				rgb[x][y][0] = c.getRed() / 255.0f;
-				rgb[x][y][1] = c.getGreen() / 255.0f;
-				rgb[x][y][2] = c.getBlue() / 255.0f;
-				hsb[x][y] = Color.RGBtoHSB(c.getRed(), c.getGreen(), c.getBlue(), null);
+				if(colorMode == ColorMode.RGB) {
+					colorChannels[0][i] = c.getRed() / 255.0f;
+					colorChannels[1][i] = c.getGreen() / 255.0f;
+					colorChannels[2][i] = c.getBlue() / 255.0f;
+				}
+				else {
+					Color.RGBtoHSB(c.getRed(), c.getGreen(), c.getBlue(), hsb);
+					for(int channel = 0; channel < 3; channel++)
+						colorChannels[channel][i] = hsb[channel];
+				}
 			}	
 		}
 		
-		// Initialize the neighbor caches
-		pixel4NeighborsCache = new ArrayList<List<Integer>>();
-		for(int i = 0; i < w*h; i++)
-			pixel4NeighborsCache.add(compute4Neighbors(i));
+		// Compute the neighbor bitmask of each pixel, so that neighbors can be visited using fixed offsets
+		neighborOffsets = new int[8];
+		for(int neighbor = 0; neighbor < 8; neighbor++)
+			neighborOffsets[neighbor] = NEIGHBOR_DY[neighbor] * w + NEIGHBOR_DX[neighbor];
+		neighborMasks = new byte[w*h];
+		for(int y = 0; y < h; y++) {
+			for(int x = 0; x < w; x++) {
+				int mask = 0;
+				for(int neighbor = 0; neighbor < 8; neighbor++) {
+					int nx = x + NEIGHBOR_DX[neighbor], ny = y + NEIGHBOR_DY[neighbor];
+					if(nx >= 0 && nx < w && ny >= 0 && ny < h)
+						mask |= 1 << neighbor;
+				}
+				neighborMasks[y*w+x] = (byte) mask;
+			}
+		}
 		
-		pixel8NeighborsCache = new ArrayList<List<Integer>>();
-		for(int i = 0; i < w*h; i++)
-			pixel8NeighborsCache.add(compute8Neighbors(i));
-				
-		// Create a graph in which each pixel is connected to its 4 cardinal neighbours.
-		// The weight of the edges are given by the euclidean distance in HSB color space
-		euclideanDistanceGraph = new WeightedGraph(w*h);
-		for(int x = 0; x < w; x++) {
-			for(int y = 0; y < h; y++) {
-				int i = y*w+x; // position of current pixel in flattened coordinates
-				for(int neighbour : get4Neighbors(i))
-					euclideanDistanceGraph.addConnection(i, neighbour, getEuclideanDistance(i, neighbour));
-			}	
+		// Compute the color distance to each neighbor once, since the image never changes.
+		// Distances are symmetric, so only compute them for half of the neighbors and mirror them.
+		neighborDistances = new float[8][w*h];
+		int[] forward = {NEIGHBOR_RIGHT, NEIGHBOR_DOWN, NEIGHBOR_DOWN_RIGHT, NEIGHBOR_DOWN_LEFT},
+			backward = {NEIGHBOR_LEFT, NEIGHBOR_UP, NEIGHBOR_UP_LEFT, NEIGHBOR_UP_RIGHT};
+		for(int i = 0; i < w*h; i++) {
+			for(int k = 0; k < forward.length; k++) {
+				int n = getNeighbor(i, forward[k]);
+				if(n != -1) {
+					float d = getEuclideanDistance(i, n);
+					neighborDistances[forward[k]][i] = d;
+					neighborDistances[backward[k]][n] = d;
+				}
+			}
 		}
 		
+		// Create a graph in which each pixel is connected to its 4 cardinal neighbours.
+		// The weight of the edges are given by the euclidean distance in HSB color space.
+		// The grid graph reads the weights from the neighbor distance table, so it doesn't need edge arrays.
+		euclideanDistanceGraph = new GridGraph(w, h, new float[][] {
+			neighborDistances[NEIGHBOR_RIGHT], neighborDistances[NEIGHBOR_LEFT], neighborDistances[NEIGHBOR_UP], neighborDistances[NEIGHBOR_DOWN]
+		});
+		
+		objectiveEvaluator = new ObjectiveEvaluator(this);
 	}
 	
 	/**
@@ -106,23 +160,32 @@ public class ProblemInstance implements IProblemInstance {
 	}
 	
 	/**
-	 * Get the color value (either RGB or HSB depending on the color mode) at a given position of the image.
-	 * @param x - A horizontal position
-	 * @param y - A vertical position
-	 * @return the color value at position (x, y), as a [r,g,b] or [h,s,b] float array
+	 * Get one channel of the color value (either RGB or HSB depending on the color mode) of a given pixel index in the image.
+	 * @param i - A pixel index (between 0 and width*height)
+	 * @param channel - A channel index (0, 1 or 2 for r,g,b or h,s,b)
+	 * @return the value of the given channel at pixel index i
 	 */
-	private float[] getColorValue(int x, int y) {
-		return colorMode == ColorMode.RGB ? rgb[x][y] : hsb[x][y];
+	public float getColorValue(int i, int channel) {
+		return colorChannels[channel][i];
 	}
 	
 	/**
 	 * Get the color value (either RGB or HSB depending on the color mode) of a given pixel index in the image.
+	 * Allocates a new array, prefer getColorValue(i, channel) in performance-sensitive code.
 	 * @param i - A pixel index (between 0 and width*height)
 	 * @return the color values at pixel index i, as a [r,g,b] or [h,s,b] float array
 	 */
 	public float[] getColorValue(int i) {
-		int[] pos = pixelIndexToPos(i);
-		return getColorValue(pos[0], pos[1]);
+		return new float[] {colorChannels[0][i], colorChannels[1][i], colorChannels[2][i]};
+	}
+	
+	/**
+	 * Get all values of one color channel (either RGB or HSB depending on the color mode), for fast iteration.
+	 * @param channel - A channel index (0, 1 or 2 for r,g,b or h,s,b)
+	 * @return an array containing the value of the given channel for each pixel index (must not be modified)
+	 */
+	public float[] getColorChannel(int channel) {
+		return colorChannels[channel];
 	}
 	
 	/**
@@ -218,6 +281,60 @@ public class ProblemInstance implements IProblemInstance {
 		return euclideanDistanceGraph;
 	}
 
+	/**
+	 * Get a minimum spanning tree of the euclidean distance graph. It is only computed once, 
+	 * use Tree.reroot to get the same tree with another root.
+	 * @param builder - The algorithm used to create the tree upon the first call
+	 * @return a minimum spanning tree rooted at pixel 0 (must not be modified)
+	 */
+	public synchronized Tree getMinimumSpanningTree(MinimumSpanningTreeBuilder builder) {
+		if(minimumSpanningTree == null)
+			minimumSpanningTree = builder.createMinimumSpanningTree(euclideanDistanceGraph, 0);
+		return minimumSpanningTree;
+	}
+	
+	/**
+	 * Create a copy of the euclidean distance graph in which the weight of each edge is randomly scaled.
+	 * @param jitter - The maximum relative change of each weight (e.g. 0.1 for +/-10%)
+	 * @param random - A random generator
+	 * @return a new graph with jittered weights
+	 */
+	public WeightedGraph createJitteredDistanceGraph(float jitter, RandomGenerator random) {
+		int w = getImage().getWidth(), h = getImage().getHeight();
+		float[][] weights = new float[4][w*h];
+		for(int i = 0; i < w*h; i++) {
+			// Jitter each edge once and mirror the weight, so that the graph stays undirected
+			for(int neighbor : new int[] {NEIGHBOR_RIGHT, NEIGHBOR_DOWN}) {
+				int n = getNeighbor(i, neighbor);
+				if(n != -1) {
+					float weight = getNeighborDistance(i, neighbor) * (1 + jitter * (2 * random.nextFloat() - 1));
+					weights[neighbor][i] = weight;
+					weights[getOppositeNeighbor(neighbor)][n] = weight;
+				}
+			}
+		}
+		return new GridGraph(w, h, weights);
+	}
+	
+	/**
+	 * Get the cache of the objective values of segmentations of this instance's image, shared by all GAs using this instance.
+	 * @param capacity - The maximum number of entries of the cache, used upon the first call
+	 * @return the fitness cache
+	 */
+	public synchronized FitnessCache getFitnessCache(int capacity) {
+		if(fitnessCache == null)
+			fitnessCache = new FitnessCache(capacity);
+		return fitnessCache;
+	}
+	
+	/**
+	 * Get the evaluator used to compute the objectives of segmentations of this instance's image.
+	 * @return the objective evaluator
+	 */
+	public ObjectiveEvaluator getObjectiveEvaluator() {
+		return objectiveEvaluator;
+	}
+
 	/**
 	 * Get the euclidean distance between two pixels, in HSB color space.
 	 * @param i - A pixel index
@@ -225,78 +342,102 @@ public class ProblemInstance implements IProblemInstance {
 	 * @return the euclidean distance
 	 */
 	public float getEuclideanDistance(int i, int j) {
-		return euclideanDistance(getColorValue(i), getColorValue(j));
+		float sumOfSquares = 0.0f;
+		for(int channel = 0; channel < 3; channel++)
+			sumOfSquares += Math.pow(colorChannels[channel][i] - colorChannels[channel][j], 2);
+		return (float) Math.sqrt(sumOfSquares);
 	}
 
 	/**
-	 * Get the indices of a given pixel's 4 cardinal neighbors.
+	 * Get the color distance between a pixel and one of its neighbors, from the precomputed table.
 	 * @param i - A pixel index
-	 * @return a list of neighbors indices
+	 * @param neighbor - A neighbor index (one of the NEIGHBOR_* constants)
+	 * @return the euclidean distance between pixel i and the given neighbor, or 0 if there is no such neighbor
 	 */
-	public List<Integer> get4Neighbors(int i) {
-		return pixel4NeighborsCache.get(i);
+	public float getNeighborDistance(int i, int neighbor) {
+		return neighborDistances[neighbor][i];
 	}
 	
 	/**
-	 * Get the indices of a given pixel's 8 neighbors.
+	 * Get the neighbor in the opposite direction of a given one (e.g. NEIGHBOR_LEFT for NEIGHBOR_RIGHT).
+	 * @param neighbor - A neighbor index (one of the NEIGHBOR_* constants)
+	 * @return the opposite neighbor index
+	 */
+	public static int getOppositeNeighbor(int neighbor) {
+		return OPPOSITE_NEIGHBORS[neighbor];
+	}
+	
+	/**
+	 * Get the index of one of the neighbors of a given pixel.
 	 * @param i - A pixel index
-	 * @return a list of neighbors indices
+	 * @param neighbor - A neighbor index (one of the NEIGHBOR_* constants)
+	 * @return the pixel index of the given neighbor, or -1 if it is outside of the image
 	 */
-	public List<Integer> get8Neighbors(int i) {
-		return pixel8NeighborsCache.get(i);
+	public int getNeighbor(int i, int neighbor) {
+		return hasNeighbor(i, neighbor) ? i + neighborOffsets[neighbor] : -1;
 	}
 	
 	/**
-	 * Compute the indices of a given pixel's 4 cardinal neighbors.
+	 * Check whether a given pixel has a given neighbor.
 	 * @param i - A pixel index
-	 * @return a list of neighbors indices
+	 * @param neighbor - A neighbor index (one of the NEIGHBOR_* constants)
+	 * @return true if the neighbor is inside the image, else false
 	 */
-	private List<Integer> compute4Neighbors(int i) {
-		int w = getImage().getWidth(), h = getImage().getHeight();
-		
-		// Check if the pixel is on one of the outside borders on the image		
-		boolean left = i % w == 0,
-				right = (i+1) % w == 0,
-				top = i < w,
-				bottom = i >= (h-1)*w;
+	public boolean hasNeighbor(int i, int neighbor) {
+		return (neighborMasks[i] & (1 << neighbor)) != 0;
+	}
 	
-		List<Integer> neighbors = new ArrayList<>(); 
-		if(!right) neighbors.add(i+1);
-		if(!left) neighbors.add(i-1);
-		if(!top) neighbors.add(i-w);
-		if(!bottom) neighbors.add(i+w);
-
-		return neighbors;
+	/**
+	 * Get the neighbors of a given pixel as a bitmask, in which bit k is set if the pixel has neighbor k (see NEIGHBOR_* constants).
+	 * Iterating over the set bits from lowest to highest visits neighbors in the same order as get8Neighbors.
+	 * @param i - A pixel index
+	 * @return the neighbor bitmask (between 0 and 255)
+	 */
+	public int getNeighborMask(int i) {
+		return neighborMasks[i] & 0xFF;
+	}
+	
+	/**
+	 * Get the offset to add to a pixel index to get one of its neighbors (only meaningful if the pixel has that neighbor).
+	 * @param neighbor - A neighbor index (one of the NEIGHBOR_* constants)
+	 * @return the offset of the neighbor
+	 */
+	public int getNeighborOffset(int neighbor) {
+		return neighborOffsets[neighbor];
 	}
 	
 	/**
-	 * Compute the indices of a given pixel's 8 neighbors.
+	 * Get the indices of a given pixel's 4 cardinal neighbors.
+	 * Allocates a new list, prefer iterating over getNeighborMask(i) in performance-sensitive code.
 	 * @param i - A pixel index
 	 * @return a list of neighbors indices
 	 */
-	private List<Integer> compute8Neighbors(int i) {
-		int w = getImage().getWidth(), h = getImage().getHeight();
-		
-		// Check if the pixel is on one of the outside borders on the image		
-		boolean left = i % w == 0,
-				right = (i+1) % w == 0,
-				top = i < w,
-				bottom = i >= (h-1)*w;
+	public List<Integer> get4Neighbors(int i) {
+		return getNeighbors(i, NEIGHBOR_DOWN + 1);
+	}
+	
+	/**
+	 * Get the indices of a given pixel's 8 neighbors.
+	 * Allocates a new list, prefer iterating over getNeighborMask(i) in performance-sensitive code.
+	 * @param i - A pixel index
+	 * @return a list of neighbors indices
+	 */
+	public List<Integer> get8Neighbors(int i) {
+		return getNeighbors(i, 8);
+	}
 	
+	/**
+	 * Get the indices of the first neighbors of a given pixel (in the order of the NEIGHBOR_* constants).
+	 * @param i - A pixel index
+	 * @param numNeighbors - The number of neighbors to consider (4 or 8)
+	 * @return a list of neighbors indices
+	 */
+	private List<Integer> getNeighbors(int i, int numNeighbors) {
 		List<Integer> neighbors = new ArrayList<>(); 
-		if(!right) neighbors.add(i+1);
-		if(!left) neighbors.add(i-1);
-		if(!top) neighbors.add(i-w);
-		if(!bottom) neighbors.add(i+w);
-		if(!right) {
-			if(!top) neighbors.add(i-w+1);
-			if(!bottom) neighbors.add(i+w+1);
-		}
-		if(!left) {
-			if(!top) neighbors.add(i-w-1);
-			if(!bottom) neighbors.add(i+w-1);
+		for(int neighbor = 0; neighbor < numNeighbors; neighbor++) {
+			if(hasNeighbor(i, neighbor))
+				neighbors.add(i + neighborOffsets[neighbor]);
 		}
-				
 		return neighbors;
 	}
 
@@ -1,39 +1,58 @@
 package ga.segmentation;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Represents a segment in the context of image segmentation.
+ * The pixels of all the segments of a segmentation are stored in a single array, grouped by segment, and a segment is a range of that array.
  * @author Kelian Baert & Caroline de Pourtales
  */
 public class Segment {
-	// Store the pixels that belong to this segment.
-    private List<Integer> pixels;
+	// The pixels of the segmentation, grouped by segment (shared by all its segments)
+    private int[] pixels;
+
+    // Range of the pixels of this segment in the array
+    private int from, to;
 
     /**
-     * Create a new empty segment.
+     * Create a segment from a range of a pixel array.
+     * @param pixels - The pixels of a segmentation, grouped by segment
+     * @param from - The index of the first pixel of this segment in the array (inclusive)
+     * @param to - The index of the last pixel of this segment in the array (exclusive)
      */
-    public Segment() {
-        this.pixels = new ArrayList<Integer>();
+    public Segment(int[] pixels, int from, int to) {
+        this.pixels = pixels;
+        this.from = from;
+        this.to = to;
     }
-    
+
     /**
-     * Add a pixel to this segment.
-     * @param i - A pixel index
+     * Get the number of pixels in this segment.
+     * @return the size of the segment
      */
-    public void addPixel(int i) {
-    	this.pixels.add(i);
+    public int getNumPixels() {
+    	return to - from;
+    }
+
+    /**
+     * Get a pixel of this segment.
+     * @param index - The index of the pixel in this segment, between 0 (inclusive) and getNumPixels() (exclusive)
+     * @return the pixel index (pixels are sorted by increasing index)
+     */
+    public int getPixel(int index) {
+    	return pixels[from + index];
     }
 
     /**
      * Get the pixels of this segment.
-     * @return the indices of the pixels that belong to this segment
+     * @return a read-only view of the indices of the pixels that belong to this segment, by increasing index
      */
     public List<Integer> getPixels() {
-        return this.pixels;
+        return new PixelList();
     }
-    
+
     /**
      * Calculate the centroid of this segment (average of the RGB of each pixel in this segment).
      * @param pi - The problem instance
@@ -41,16 +60,32 @@ public class Segment {
      */
     public float[] calculateCentroid(ProblemInstance pi) {
     	float[] centroid = new float[3];
-    	
-    	List<Integer> pixels = getPixels();
-    	float numPixels = (float) pixels.size();
-		for(int i : pixels) {
-			float[] color = pi.getColorValue(i);
-			centroid[0] += color[0] / numPixels;
-			centroid[1] += color[1] / numPixels;
-			centroid[2] += color[2] / numPixels;
+
+    	float numPixels = (float) getNumPixels();
+		for(int k = from; k < to; k++) {
+			int i = pixels[k];
+			centroid[0] += pi.getColorValue(i, 0) / numPixels;
+			centroid[1] += pi.getColorValue(i, 1) / numPixels;
+			centroid[2] += pi.getColorValue(i, 2) / numPixels;
 		}
-		
+
 		return centroid;
     }
+
+    /**
+     * A read-only list view of the pixels of this segment.
+     */
+    private class PixelList extends AbstractList<Integer> implements RandomAccess {
+    	@Override
+    	public Integer get(int index) {
+    		if(index < 0 || index >= getNumPixels())
+    			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + getNumPixels());
+    		return getPixel(index);
+    	}
+
+    	@Override
+    	public int size() {
+    		return getNumPixels();
+    	}
+    }
 }
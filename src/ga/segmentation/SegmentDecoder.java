@@ -0,0 +1,164 @@
+package ga.segmentation;
+
+import ga.segmentation.Individual.Direction;
+
+/**
+ * Decodes a direction-based genotype into a segment matrix, in linear time and without recursion.
+ * Each pixel is visited at most twice: once when following the direction pointers, once when labeling the path.
+ * @author Kelian Baert & Caroline de Pourtales
+ */
+public class SegmentDecoder {
+	// Marker used for pixels that are on the path currently being followed
+	private static final int ON_PATH = -2;
+
+	// Marker used for pixels that haven't been assigned a segment yet
+	private static final int UNASSIGNED = -1;
+
+	// Reusable path and upstream pixel buffers, one per thread
+	private static final ThreadLocal<int[]> pathBuffer = ThreadLocal.withInitial(() -> new int[0]);
+	private static final ThreadLocal<int[]> upstreamBuffer = ThreadLocal.withInitial(() -> new int[0]);
+
+	/**
+	 * Assign each pixel to its segment by following the direction pointers.
+	 * Segments are numbered in the order in which they are discovered when scanning pixels by increasing index.
+	 * @param genotype - A genotype
+	 * @param width - The width of the image
+	 * @param height - The height of the image
+	 * @param pixelSegments - An array of length width*height in which to store the segment of each pixel
+	 * @return the number of segments
+	 */
+	public static int decode(Genotype genotype, int width, int height, int[] pixelSegments) {
+		int n = genotype.size();
+		int[] path = getBuffer(pathBuffer, n);
+
+		for(int i = 0; i < n; i++)
+			pixelSegments[i] = UNASSIGNED;
+
+		int numSegments = 0;
+		for(int i = 0; i < n; i++) {
+			if(pixelSegments[i] != UNASSIGNED)
+				continue;
+
+			// Follow the direction pointers until reaching a root, an already labeled pixel or a cycle
+			int pathLength = 0;
+			int current = i;
+			int segment;
+			while(true) {
+				pixelSegments[current] = ON_PATH;
+				path[pathLength++] = current;
+
+				int next = getPixelIndex(current, genotype.getCode(current), width, height);
+				if(next == -1 || pixelSegments[next] == ON_PATH) {
+					segment = numSegments++;
+					break;
+				}
+				if(pixelSegments[next] != UNASSIGNED) {
+					segment = pixelSegments[next];
+					break;
+				}
+				current = next;
+			}
+
+			// Label the whole path
+			for(int k = 0; k < pathLength; k++)
+				pixelSegments[path[k]] = segment;
+		}
+
+		return numSegments;
+	}
+
+	/**
+	 * Collect all pixels whose direction chain goes through a given pixel, including the pixel itself.
+	 * These are the only pixels whose segment relations can change when the direction of that pixel changes.
+	 * Collected pixels are marked by overwriting their entry in the segment matrix with the given marker.
+	 * @param genotype - A genotype
+	 * @param pixel - A pixel index
+	 * @param width - The width of the image
+	 * @param height - The height of the image
+	 * @param pixelSegments - The segment matrix, in which collected pixels will be marked
+	 * @param marker - The value used to mark collected pixels (must not be a valid segment index)
+	 * @return a buffer containing the collected pixels (valid until the next call on the same thread),
+	 * preceded by their number at index 0
+	 */
+	public static int[] collectUpstreamPixels(Genotype genotype, int pixel, int width, int height, int[] pixelSegments, int marker) {
+		int[] upstream = getBuffer(upstreamBuffer, genotype.size() + 1);
+		int count = 1;
+		upstream[count++] = pixel;
+		pixelSegments[pixel] = marker;
+		
+		// Breadth-first search following the direction pointers backwards
+		for(int k = 1; k < count; k++) {
+			int p = upstream[k];
+			int x = p % width;
+			if(x < width - 1 && pixelSegments[p+1] != marker && genotype.getCode(p+1) == Genotype.LEFT) {
+				pixelSegments[p+1] = marker;
+				upstream[count++] = p+1;
+			}
+			if(x > 0 && pixelSegments[p-1] != marker && genotype.getCode(p-1) == Genotype.RIGHT) {
+				pixelSegments[p-1] = marker;
+				upstream[count++] = p-1;
+			}
+			if(p >= width && pixelSegments[p-width] != marker && genotype.getCode(p-width) == Genotype.DOWN) {
+				pixelSegments[p-width] = marker;
+				upstream[count++] = p-width;
+			}
+			if(p < width * (height - 1) && pixelSegments[p+width] != marker && genotype.getCode(p+width) == Genotype.UP) {
+				pixelSegments[p+width] = marker;
+				upstream[count++] = p+width;
+			}
+		}
+		
+		upstream[0] = count - 1;
+		return upstream;
+	}
+	
+	/**
+	 * Get the pixel in a given direction from a source pixel.
+	 * @param source - A pixel index
+	 * @param dir - A direction
+	 * @param width - The width of the image
+	 * @param height - The height of the image
+	 * @return the pixel in the given direction from the source, or -1 if there is none
+	 */
+	public static int getPixelIndex(int source, Direction dir, int width, int height) {
+		return getPixelIndex(source, (byte) dir.ordinal(), width, height);
+	}
+
+	/**
+	 * Get the pixel in a given direction from a source pixel.
+	 * @param source - A pixel index
+	 * @param code - A direction code (see Genotype)
+	 * @param width - The width of the image
+	 * @param height - The height of the image
+	 * @return the pixel in the given direction from the source, or -1 if there is none
+	 */
+	public static int getPixelIndex(int source, byte code, int width, int height) {
+		switch(code) {
+			case Genotype.LEFT:
+				return source % width == 0 ? -1 : source - 1;
+			case Genotype.RIGHT:
+				return source % width == width - 1 ? -1 : source + 1;
+			case Genotype.UP:
+				return source < width ? -1 : source - width;
+			case Genotype.DOWN:
+				return source >= width * (height - 1) ? -1 : source + width;
+			default:
+				return -1;
+		}
+	}
+
+	/**
+	 * Get this thread's instance of a buffer, growing it if necessary.
+	 * @param buffer - A thread-local buffer
+	 * @param size - The minimum size of the buffer
+	 * @return a buffer of at least the given size
+	 */
+	private static int[] getBuffer(ThreadLocal<int[]> buffer, int size) {
+		int[] array = buffer.get();
+		if(array.length < size) {
+			array = new int[size];
+			buffer.set(array);
+		}
+		return array;
+	}
+}
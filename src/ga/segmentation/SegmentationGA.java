@@ -2,6 +2,7 @@ package ga.segmentation;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import ga.GeneticAlgorithm;
 import ga.IIndividual;
@@ -14,8 +15,18 @@ import main.Main;
  *
  */
 public class SegmentationGA extends GeneticAlgorithm {
+	// Whether mutated individuals are evaluated incrementally, and whether to check the results against a full evaluation
+	private boolean incrementalEvaluation, checkIncrementalEvaluation;
+	
+	// Cache of the objective values of evaluated segmentations (null if disabled)
+	private FitnessCache fitnessCache;
+	
 	public SegmentationGA(ProblemInstance problemInstance, float mutationRate, float crossoverRate) {
 		super(problemInstance, mutationRate, crossoverRate);
+		this.incrementalEvaluation = Main.config.getBoolean("incrementalEvaluation");
+		this.checkIncrementalEvaluation = Main.config.getBoolean("incrementalEvaluationCheck");
+		int cacheSize = Main.config.getInt("fitnessCacheSize");
+		this.fitnessCache = cacheSize > 0 ? problemInstance.getFitnessCache(cacheSize) : null;
 	}
 
 	
@@ -42,6 +53,7 @@ public class SegmentationGA extends GeneticAlgorithm {
 			System.out.println("	Connectivity = " + conn + " (" + beta*conn + ")");
 			System.out.println("	Overall deviation = " + ovdev + " (" + gamma*ovdev + ")");
 		}
+		printFitnessCacheState();
 		
 		/*for(IIndividual ii : getPopulation().getIndividuals()) {
 			Individual i = (Individual) ii;
@@ -56,17 +68,69 @@ public class SegmentationGA extends GeneticAlgorithm {
 		int popSize = Main.config.getInt("populationSize");
 		int poolSize =  Main.config.getInt("initialPopulationPool");
 		
-		List<IIndividual> inds = new ArrayList<IIndividual>();
-		for(int i = 0; i < poolSize; i++) {
-			System.out.println("Creating individual #" + (i+1) + "/" + poolSize);
-			inds.add(IndividualGenerator.createRandomIndividual(this));
-		}
+		List<IIndividual> inds = createRandomIndividuals(poolSize);
 		inds.sort((a,b) -> (int) Math.signum(b.getFitness() - a.getFitness()));
 		pop.setIndividuals(inds.subList(0, popSize));
 		
 		return pop;
 	}
 	
+	/**
+	 * Create random individuals on the worker threads, and evaluate them.
+	 * Each individual uses the random generator of its task (see runInParallel), 
+	 * so that the results don't depend on the number of threads or on the order of execution.
+	 * @param count - The number of individuals to create
+	 * @return a list of new individuals
+	 */
+	protected List<IIndividual> createRandomIndividuals(int count) {
+		List<Callable<IIndividual>> tasks = new ArrayList<Callable<IIndividual>>();
+		for(int i = 0; i < count; i++) {
+			final int index = i;
+			tasks.add(() -> {
+				System.out.println("Creating individual #" + (index+1) + "/" + count);
+				Individual ind = IndividualGenerator.createRandomIndividual(this, getRandomGenerator());
+				// Evaluate the objectives on the worker thread
+				ind.getFitness();
+				return ind;
+			});
+		}
+		return runInParallel(tasks);
+	}
+	
+	/**
+	 * Check whether mutated individuals should update their objective values incrementally
+	 * @return true if incremental evaluation is enabled, else false
+	 */
+	public boolean useIncrementalEvaluation() {
+		return incrementalEvaluation;
+	}
+	
+	/**
+	 * Check whether incremental evaluation results should be checked against a full evaluation (for debugging)
+	 * @return true if incremental evaluation results should be checked, else false
+	 */
+	public boolean checkIncrementalEvaluation() {
+		return checkIncrementalEvaluation;
+	}
+	
+	/**
+	 * Get the cache of the objective values of evaluated segmentations.
+	 * @return the fitness cache, or null if it is disabled
+	 */
+	public FitnessCache getFitnessCache() {
+		return fitnessCache;
+	}
+	
+	/**
+	 * Print the hit rate of the fitness cache, if it is enabled.
+	 */
+	protected void printFitnessCacheState() {
+		if(fitnessCache == null)
+			return;
+		long hits = fitnessCache.getHits(), misses = fitnessCache.getMisses();
+		System.out.println("Fitness cache: " + hits + " hits, " + misses + " misses (" + (hits + misses == 0 ? 0 : 100 * hits / (hits + misses)) + "% hits)");
+	}
+	
 	@Override
 	public ProblemInstance getProblemInstance() {
 		return (ProblemInstance) super.getProblemInstance();
@@ -1,11 +1,9 @@
 package ga.segmentation.multiobjective;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Function;
 
 import ga.GeneticAlgorithm;
 import ga.IIndividual;
@@ -13,15 +11,22 @@ import ga.segmentation.Individual;
 import ga.segmentation.Population;
 
 public class MultiObjectivePopulation extends Population {
-	private List<ArrayList<Individual>> fronts;
-	private Map<Individual, Integer> frontMap;
-	private Map<Individual, Float> crowdingDistances;
+	// Front index and crowding distance of each ranked individual, by selection index (see Individual.getSelectionIndex)
+	private int[] ranks;
+	private float[] crowdingDistances;
+	
+	// Whether the ranks and crowding distances are those of the current individuals
+	private boolean ranked;
+	
+	// The first front of the current individuals, updated incrementally when inserting offspring
+	private ParetoArchive firstFront;
 	
 	public MultiObjectivePopulation(GeneticAlgorithm ga) {
 		super(ga);
-		fronts = new ArrayList<ArrayList<Individual>>();
-		frontMap = new HashMap<Individual, Integer>();
-		crowdingDistances = new HashMap<Individual, Float>();
+		ranks = new int[0];
+		crowdingDistances = new float[0];
+		ranked = false;
+		firstFront = new ParetoArchive();
 	}
 
 	/**
@@ -31,32 +36,53 @@ public class MultiObjectivePopulation extends Population {
 	protected void updateFrontsAndCrowdingDistances(List<IIndividual> iindividuals) {
 		boolean printTimes = false;
 		
-		// Cast IIndividual to Individual
-		List<Individual> individuals = new ArrayList<Individual>();
-		for(IIndividual i : iindividuals)
-			individuals.add((Individual) i);
+		float[][] objectives = indexIndividuals(iindividuals);
 		
 		long time = System.nanoTime();
 		// Update the fronts
-		fastNonDominatedSorting(individuals);
+		ranks = NonDominatedSorting.sort(objectives);
 		long fndsTime = (System.nanoTime() - time) / 1000000;
-	
-		// Store a Individual:frontIndex map for fast access
-		frontMap.clear();
-		for(int i = 0; i < fronts.size(); i++) {
-			for(Individual ind : fronts.get(i))
-				frontMap.put(ind, i);
-		}
 		
 		time = System.nanoTime();
-		updateCrowdingDistances();
+		updateCrowdingDistances(objectives);
 		long cdTime = (System.nanoTime() - time) / 1000000;
+		
 		if(printTimes) {
 			System.out.println("Fast non-dominated sorting took " + fndsTime + " ms");
 			System.out.println("Computing crowding distances took " + cdTime + " ms");
 		}
 	}
 	
+	/**
+	 * Rank the current individuals and rebuild the first front if they changed since they were last ranked.
+	 */
+	private void ensureRanked() {
+		if(ranked)
+			return;
+		updateFrontsAndCrowdingDistances(getIndividuals());
+		firstFront.clear();
+		for(IIndividual ind : getIndividuals()) {
+			if(ranks[((Individual) ind).getSelectionIndex()] == 0)
+				firstFront.insert((Individual) ind);
+		}
+		ranked = true;
+	}
+	
+	/**
+	 * Give each individual a dense selection index, and copy its objective values in a primitive matrix.
+	 * @param individuals - The individuals to rank
+	 * @return the objective values of each individual, by selection index
+	 */
+	private float[][] indexIndividuals(List<IIndividual> individuals) {
+		float[][] objectives = new float[individuals.size()][];
+		for(int i = 0; i < individuals.size(); i++) {
+			Individual ind = (Individual) individuals.get(i);
+			ind.setSelectionIndex(i);
+			objectives[i] = ParetoArchive.getObjectives(ind);
+		}
+		return objectives;
+	}
+	
 	/** 
 	 * Override the selection comparator to use fronts & crowding distance
 	 * Lower-front individuals are selected first, falling back on crowding distances when two individuals belong to the same front
@@ -64,18 +90,18 @@ public class MultiObjectivePopulation extends Population {
 	@Override
 	public Comparator<IIndividual> getSelectionComparator() {
 		return (a,b) -> {
-			int frontA = frontMap.get(a), frontB = frontMap.get(b);
-			if(frontA != frontB)
-				return (int) Math.signum(frontA - frontB);
+			int indexA = ((Individual) a).getSelectionIndex(), indexB = ((Individual) b).getSelectionIndex();
+			if(ranks[indexA] != ranks[indexB])
+				return ranks[indexA] < ranks[indexB] ? -1 : 1;
 			else
-				return (int) Math.signum(crowdingDistances.get(b) - crowdingDistances.get(a));
+				return (int) Math.signum(crowdingDistances[indexB] - crowdingDistances[indexA]);
 		};
 	}
 	
 	@Override
 	public List<IIndividual> createOffspring() {
-		// Update the fronts and crowding distances for the current population.
-		updateFrontsAndCrowdingDistances(getIndividuals());
+		// Update the fronts and crowding distances for the current population (unless they are still up to date from the last insertion)
+		ensureRanked();
 		
 		// Let the superclass create the offspring, using the same tournament selection logic we use in the weighted-sum GA 
 		// (but with our new comparator)
@@ -85,6 +111,8 @@ public class MultiObjectivePopulation extends Population {
 	
 	@Override
 	public void insertOffspring(List<IIndividual> offspring) {
+		ensureRanked();
+		
 		// Create a pool of 2n individuals
 		List<IIndividual> pool = new ArrayList<IIndividual>();
 		pool.addAll(getIndividuals());
@@ -93,125 +121,132 @@ public class MultiObjectivePopulation extends Population {
 		// Compute the fronts and crowding distances for parent + offspring
 		updateFrontsAndCrowdingDistances(pool);
 		
-		System.out.println("Number of fronts for pop + offspring: " + fronts.size());
+		System.out.println("Number of fronts for pop + offspring: " + NonDominatedSorting.getNumFronts(ranks));
+		
+		// The first front of the pool is the non-dominated part of the previous first front and the offspring
+		for(IIndividual ind : offspring)
+			firstFront.insert((Individual) ind);
 		
 		// Reject to cull down parent+offspring to n individuals
 		pool.sort(getSelectionComparator());
-		pool = pool.subList(0, getSize());
+		List<IIndividual> survivors = new ArrayList<IIndividual>(pool.subList(0, getSize()));
 		
-		setIndividuals(pool);
+		// Culled individuals leave the first front (when the first front is culled, no other individual survives)
+		boolean[] culled = new boolean[pool.size()];
+		for(IIndividual ind : pool.subList(getSize(), pool.size()))
+			culled[((Individual) ind).getSelectionIndex()] = true;
+		firstFront.removeIf(ind -> culled[ind.getSelectionIndex()]);
+		for(IIndividual ind : pool.subList(getSize(), pool.size()))
+			discard(ind);
 		
-		// Update the fronts again so we only have the current population in the fronts storage
-		updateFrontsAndCrowdingDistances(pool);
+		// Survivors keep their fronts (all the individuals dominating a survivor survive too), only the crowding distances change
+		int[] survivorRanks = new int[survivors.size()];
+		for(int i = 0; i < survivors.size(); i++)
+			survivorRanks[i] = ranks[((Individual) survivors.get(i)).getSelectionIndex()];
+		float[][] objectives = indexIndividuals(survivors);
+		ranks = survivorRanks;
+		updateCrowdingDistances(objectives);
+		
+		setIndividuals(survivors);
+		ranked = true;
 	}
 	
-	private void fastNonDominatedSorting(List<Individual> individuals) {
-		fronts.clear();
-		
-		// HashMap of ni
-		Map<Individual, Integer> nindexes = new HashMap<Individual, Integer>();
-		
-		// Each entry contains a list of individuals that the key individual is dominating
-		Map<Individual, ArrayList<Individual>> dominating = new HashMap<Individual, ArrayList<Individual>>();
-
-		// First front: none of the individuals in it are dominated
-		fronts.add(new ArrayList<Individual>());
-
-		for(Individual i : individuals) {			
-			int idominatedBy = 0; // number of individuals i is dominated by
-			ArrayList<Individual> idominating = new ArrayList<Individual>(); // individuals i is dominating
-
-			for(Individual j : individuals) {
-				if(dominates(j, i))
-					idominatedBy++;
-				else if(dominates(i, j))
-					idominating.add(j);
-			}
-			if(idominatedBy == 0)
-				fronts.get(0).add(i);
-			
-			nindexes.put(i,idominatedBy);
-			dominating.put(i,idominating);
-		}
-
-		// Other fronts
-		List<Individual> currentFi = new ArrayList<Individual>(fronts.get(0));
-		while(!currentFi.isEmpty()) {
-			List<Individual> newFront = new ArrayList<Individual>();
-			for(Individual i : currentFi) {
-				// Iterate over the individuals that i dominates
-				for(Individual j : dominating.get(i)) {
-					nindexes.put(j, nindexes.get(j) - 1);
-					// If j is dominated by no one anymore, add it to the current front
-					if(nindexes.get(j) == 0)
-						newFront.add(j);
-				}
-			}
-			
-			if(!newFront.isEmpty())
-				fronts.add(new ArrayList<Individual>(newFront));
-			currentFi = newFront;
-		}
+	@Override
+	public void addIndividual(IIndividual ind) {
+		super.addIndividual(ind);
+		ranked = false;
+	}
+	
+	@Override
+	public void setIndividuals(List<IIndividual> inds) {
+		super.setIndividuals(inds);
+		ranked = false;
+	}
+	
+	/**
+	 * Group the indices of the individuals by front.
+	 * @param ranks - The front index of each individual
+	 * @return the indices of the individuals of each front, by increasing index
+	 */
+	private static int[][] groupByFront(int[] ranks) {
+		int[] sizes = new int[NonDominatedSorting.getNumFronts(ranks)];
+		for(int rank : ranks)
+			sizes[rank]++;
+		int[][] fronts = new int[sizes.length][];
+		for(int f = 0; f < fronts.length; f++)
+			fronts[f] = new int[sizes[f]];
+		int[] filled = new int[sizes.length];
+		for(int i = 0; i < ranks.length; i++)
+			fronts[ranks[i]][filled[ranks[i]]++] = i;
+		return fronts;
 	}
 
-	private void updateCrowdingDistances() {
-		crowdingDistances.clear();
-		// For each front, calculate the crowding distance of the individuals inside
-		for(List<Individual> front : fronts) {
-			for(Individual i : front)
-				crowdingDistances.put(i, 0.0f);
-
-			// Criterion: edgeValue
-			addCrowdingDistances(front, Individual::getEdgeValue, crowdingDistances);
-	
-			// Criterion: connectivity
-			addCrowdingDistances(front, Individual::getConnectivity, crowdingDistances);
-			
-			// Criterion: overallDeviation
-			addCrowdingDistances(front, Individual::getOverallDeviation, crowdingDistances);
-		}
+	/**
+	 * Computes the crowding distances of the ranked individuals
+	 * @param objectives - The objective values of each individual
+	 */
+	private void updateCrowdingDistances(float[][] objectives) {
+		crowdingDistances = new float[ranks.length];
+		for(int[] front : groupByFront(ranks))
+			updateCrowdingDistances(front, objectives);
+	}
+	
+	/**
+	 * Computes the crowding distances for one front, on every objective
+	 * @param front - The indices of the individuals of the front (reordered by the sorts on each objective)
+	 * @param objectives - The objective values of each individual
+	 */
+	private void updateCrowdingDistances(int[] front, float[][] objectives) {
+		long[] keys = new long[front.length];
+		int[] previousOrder = new int[front.length];
+		for(int o = 0; o < NonDominatedSorting.OBJECTIVES; o++)
+			addCrowdingDistances(front, objectives, o, keys, previousOrder);
 	}
 	
 	/**
-	 * Computes the crowding distances for one front, on a given objective function
-	 * @param front - The front
-	 * @param objectiveFunction - The objective function
-	 * @param crowdingDistances - A map in which to store crowding distances
+	 * Computes the crowding distances for one front, on a given objective
+	 * @param front - The indices of the individuals of the front, sorted by decreasing objective value by this method
+	 * @param objectives - The objective values of each individual
+	 * @param objective - The objective
+	 * @param keys, previousOrder - Buffers, at least as long as the front
 	 */
-	private void addCrowdingDistances(List<Individual> front, Function<Individual, Float> objectiveFunction, Map<Individual, Float> crowdingDistances) {
-		front.sort((a,b) -> (int) Math.signum(objectiveFunction.apply(b) - objectiveFunction.apply(a)));
+	private void addCrowdingDistances(int[] front, float[][] objectives, int objective, long[] keys, int[] previousOrder) {
+		// Stable sort by decreasing value: the high bits hold the value (order-reversed), the low bits the previous position
+		for(int i = 0; i < front.length; i++)
+			keys[i] = ((long) ~sortableBits(objectives[front[i]][objective]) << 32) | i;
+		Arrays.sort(keys, 0, front.length);
+		System.arraycopy(front, 0, previousOrder, 0, front.length);
+		for(int i = 0; i < front.length; i++)
+			front[i] = previousOrder[(int) keys[i]];
 		
-		Individual first = front.get(0), last = front.get(front.size() - 1);
+		int first = front[0], last = front[front.length - 1];
 		
-		crowdingDistances.put(first, Float.POSITIVE_INFINITY);
-		crowdingDistances.put(last, Float.POSITIVE_INFINITY);
+		crowdingDistances[first] = Float.POSITIVE_INFINITY;
+		crowdingDistances[last] = Float.POSITIVE_INFINITY;
 
-		float objectiveMin = objectiveFunction.apply(last);
-		float objectiveMax = objectiveFunction.apply(first);
+		float objectiveMin = objectives[last][objective];
+		float objectiveMax = objectives[first][objective];
 
-		for(int i = 1; i < front.size()-1; i++) {
-			crowdingDistances.put(front.get(i), crowdingDistances.get(front.get(i)) +
-					(objectiveFunction.apply(front.get(i+1)) - objectiveFunction.apply(front.get(i-1))) / (objectiveMax - objectiveMin));
+		for(int i = 1; i < front.length-1; i++) {
+			crowdingDistances[front[i]] += 
+					(objectives[front[i+1]][objective] - objectives[front[i-1]][objective]) / (objectiveMax - objectiveMin);
 		}
 	}
 	
 	/**
-	 * Check whether or not individual i dominates individual j
-	 * @param i - An individual
-	 * @param j - Another individual
-	 * @return true if i dominates j, else false
+	 * Get an int whose signed order is the order of a given float (0 and -0 are considered equal).
 	 */
-	private static boolean dominates(Individual i, Individual j) {
-		float ia = i.getEdgeValue(), ib = i.getConnectivity(), ic = i.getOverallDeviation();
-		float ja = j.getEdgeValue(), jb = j.getConnectivity(), jc = j.getOverallDeviation();
-		
-		return (ia >= ja && ib > jb  && ic > jc) ||
-			   (ia > ja  && ib >= jb && ic > jc) ||
-			   (ia > ja  && ib > jb  && ic >= jc);
+	private static int sortableBits(float value) {
+		int bits = Float.floatToIntBits(value + 0.0f);
+		return bits ^ ((bits >> 31) & 0x7fffffff);
 	}
 	
-	
+	/**
+	 * Get the first front of the current individuals.
+	 * @return a new list containing the individuals that aren't dominated by any other individual
+	 */
 	public List<Individual> getFirstFront() {
-		return fronts.get(0);
+		ensureRanked();
+		return firstFront.getMembers();
 	}
 }
@@ -1,12 +1,10 @@
 package ga.segmentation.multiobjective;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import ga.IIndividual;
 import ga.IPopulation;
 import ga.segmentation.Individual;
-import ga.segmentation.IndividualGenerator;
 import ga.segmentation.ProblemInstance;
 import ga.segmentation.SegmentationGA;
 import main.Main;
@@ -23,11 +21,7 @@ public class MultiObjectiveSegmentationGA extends SegmentationGA {
 		int popSize = Main.config.getInt("populationSize");
 		int poolSize =  Main.config.getInt("initialPopulationPool");
 		
-		List<IIndividual> inds = new ArrayList<IIndividual>();
-		for(int i = 0; i < poolSize; i++) {
-			System.out.println("Creating individual #" + (i+1) + "/" + poolSize);
-			inds.add(IndividualGenerator.createRandomIndividual(this));
-		}
+		List<IIndividual> inds = createRandomIndividuals(poolSize);
 		pop.updateFrontsAndCrowdingDistances(inds);
 		inds.sort(pop.getSelectionComparator());
 		pop.setIndividuals(inds.subList(0, popSize));
@@ -41,6 +35,7 @@ public class MultiObjectiveSegmentationGA extends SegmentationGA {
 		List<Individual> firstFront = ((MultiObjectivePopulation) getPopulation()).getFirstFront();
 		
 		System.out.println("Size of first front: " + firstFront.size());
+		printFitnessCacheState();
 		
 		boolean firstFrontDetails = false;
 		if(firstFrontDetails) {
@@ -0,0 +1,127 @@
+package ga.segmentation.multiobjective;
+
+import java.util.Arrays;
+
+/**
+ * Non-dominated sorting of solutions with three objectives (to maximize), stored in a primitive matrix.
+ * Uses the Efficient Non-dominated Sort with binary search (ENS-BS): solutions are sorted lexicographically,
+ * so that every solution comes after the solutions dominating it, then each solution is put in the first front
+ * that contains none of its dominators, found by binary search over the fronts.
+ * @author Kelian Baert & Caroline de Pourtales
+ */
+public class NonDominatedSorting {
+	// Number of objectives of each solution
+	public static final int OBJECTIVES = 3;
+
+	/**
+	 * Compute the front of each solution.
+	 * @param objectives - The objective values of each solution (one row of OBJECTIVES values per solution)
+	 * @return an array containing the front index of each solution (0 for non-dominated solutions)
+	 */
+	public static int[] sort(float[][] objectives) {
+		int n = objectives.length;
+		int[] front = new int[n];
+
+		// Sort the solutions lexicographically, from best to worst
+		int[] order = new int[n];
+		for(int i = 0; i < n; i++)
+			order[i] = i;
+		mergeSort(order, new int[n], 0, n, objectives);
+
+		// Members of each front, in insertion order
+		int[][] members = new int[n][];
+		int[] sizes = new int[n];
+		int numFronts = 0;
+
+		for(int s : order) {
+			// Dominators of s are in a contiguous range of the first fronts, find the first front without any
+			int lo = 0, hi = numFronts;
+			while(lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if(isDominatedByFront(objectives[s], members[mid], sizes[mid], objectives))
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+
+			if(lo == numFronts) {
+				members[numFronts] = new int[4];
+				numFronts++;
+			}
+			else if(sizes[lo] == members[lo].length)
+				members[lo] = Arrays.copyOf(members[lo], sizes[lo] * 2);
+			members[lo][sizes[lo]++] = s;
+			front[s] = lo;
+		}
+		return front;
+	}
+
+	/**
+	 * Get the number of fronts from the result of <code>sort</code>.
+	 * @param front - The front index of each solution
+	 * @return the number of fronts
+	 */
+	public static int getNumFronts(int[] front) {
+		int max = -1;
+		for(int f : front)
+			max = Math.max(max, f);
+		return max + 1;
+	}
+
+	/**
+	 * Check whether a solution dominates another one: it must be at least as good for every objective, and strictly better for at least two of them.
+	 * @param i - The objective values of a solution
+	 * @param j - The objective values of another solution
+	 * @return true if i dominates j, else false
+	 */
+	public static boolean dominates(float[] i, float[] j) {
+		if(i[0] < j[0] || i[1] < j[1] || i[2] < j[2])
+			return false;
+		int strictlyBetter = (i[0] > j[0] ? 1 : 0) + (i[1] > j[1] ? 1 : 0) + (i[2] > j[2] ? 1 : 0);
+		return strictlyBetter >= 2;
+	}
+
+	/**
+	 * Check whether any member of a front dominates a given solution.
+	 * The latest members are checked first, as they are the closest to the solution in the lexicographic order.
+	 */
+	private static boolean isDominatedByFront(float[] solution, int[] members, int size, float[][] objectives) {
+		for(int i = size - 1; i >= 0; i--) {
+			if(dominates(objectives[members[i]], solution))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Stable merge sort of solution indices, by decreasing lexicographic order of their objective values.
+	 */
+	private static void mergeSort(int[] indices, int[] buffer, int from, int to, float[][] objectives) {
+		if(to - from < 2)
+			return;
+		int mid = (from + to) >>> 1;
+		mergeSort(indices, buffer, from, mid, objectives);
+		mergeSort(indices, buffer, mid, to, objectives);
+
+		int i = from, j = mid, k = from;
+		while(i < mid && j < to)
+			buffer[k++] = compareLexicographically(objectives[indices[j]], objectives[indices[i]]) > 0 ? indices[j++] : indices[i++];
+		while(i < mid)
+			buffer[k++] = indices[i++];
+		while(j < to)
+			buffer[k++] = indices[j++];
+		System.arraycopy(buffer, from, indices, from, to - from);
+	}
+
+	/**
+	 * Compare the objective values of two solutions lexicographically.
+	 */
+	private static int compareLexicographically(float[] a, float[] b) {
+		for(int o = 0; o < OBJECTIVES; o++) {
+			// Plain comparisons (unlike Float.compare, they consider 0 and -0 equal, as dominance does)
+			if(a[o] != b[o])
+				return a[o] > b[o] ? 1 : -1;
+		}
+		return 0;
+	}
+}
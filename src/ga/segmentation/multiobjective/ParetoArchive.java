@@ -0,0 +1,130 @@
+package ga.segmentation.multiobjective;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+import ga.segmentation.Individual;
+
+/**
+ * An archive of mutually non-dominated individuals, updated incrementally.
+ * The objective values of the members are kept in a primitive matrix, so that dominance checks don't go through the individuals' caches.
+ * @author Kelian Baert & Caroline de Pourtales
+ */
+public class ParetoArchive {
+	// Members of the archive (in insertion order) and their objective values
+	private Individual[] members;
+	private float[][] objectives;
+	private int size;
+
+	/**
+	 * Create an empty archive.
+	 */
+	public ParetoArchive() {
+		members = new Individual[16];
+		objectives = new float[16][];
+		size = 0;
+	}
+
+	/**
+	 * Insert an individual in the archive if no member dominates it. Members dominated by the individual are removed.
+	 * @param ind - An individual
+	 * @return true if the individual was inserted, else false
+	 */
+	public boolean insert(Individual ind) {
+		float[] values = getObjectives(ind);
+		for(int i = 0; i < size; i++) {
+			if(members[i] == ind || NonDominatedSorting.dominates(objectives[i], values))
+				return false;
+		}
+
+		// Remove the members dominated by the new individual, keeping the order of the others
+		int kept = 0;
+		for(int i = 0; i < size; i++) {
+			if(!NonDominatedSorting.dominates(values, objectives[i])) {
+				members[kept] = members[i];
+				objectives[kept] = objectives[i];
+				kept++;
+			}
+		}
+		clear(kept);
+
+		if(size == members.length) {
+			members = Arrays.copyOf(members, size * 2);
+			objectives = Arrays.copyOf(objectives, size * 2);
+		}
+		members[size] = ind;
+		objectives[size] = values;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Remove the members matching a given condition.
+	 * Individuals that were rejected or evicted because of a removed member are not restored.
+	 * @param filter - A condition on members
+	 */
+	public void removeIf(Predicate<Individual> filter) {
+		int kept = 0;
+		for(int i = 0; i < size; i++) {
+			if(!filter.test(members[i])) {
+				members[kept] = members[i];
+				objectives[kept] = objectives[i];
+				kept++;
+			}
+		}
+		clear(kept);
+	}
+
+	/**
+	 * Remove a given individual from the archive.
+	 * Individuals that were rejected or evicted because of it are not restored.
+	 * @param ind - An individual
+	 */
+	public void remove(Individual ind) {
+		removeIf(member -> member == ind);
+	}
+
+	/**
+	 * Remove all members.
+	 */
+	public void clear() {
+		clear(0);
+	}
+
+	/**
+	 * Get the members of the archive.
+	 * @return a new list containing the members, in insertion order
+	 */
+	public List<Individual> getMembers() {
+		List<Individual> list = new ArrayList<Individual>(size);
+		for(int i = 0; i < size; i++)
+			list.add(members[i]);
+		return list;
+	}
+
+	/**
+	 * Get the number of members.
+	 * @return the size of the archive
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Truncate the archive to a given size, releasing the references to the removed members.
+	 */
+	private void clear(int newSize) {
+		Arrays.fill(members, newSize, size, null);
+		Arrays.fill(objectives, newSize, size, null);
+		size = newSize;
+	}
+
+	/**
+	 * Get the objective values of an individual, in the order used by NonDominatedSorting.
+	 */
+	static float[] getObjectives(Individual ind) {
+		return new float[] {ind.getEdgeValue(), ind.getConnectivity(), ind.getOverallDeviation()};
+	}
+}
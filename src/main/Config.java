@@ -62,6 +62,15 @@ public class Config {
 		return Integer.parseInt(get(key));
 	}
 	
+	/**
+	 * Get a boolean property with a given key
+	 * @param key - A property key
+	 * @return the property associated with the given key
+	 */
+	public boolean getBoolean(String key) {
+		return Boolean.parseBoolean(get(key).trim());
+	}
+	
 	/**
 	 * Parses a configuration file with a given name
 	 * @param fileName - The name of the configuration file, e.g. config.properties  
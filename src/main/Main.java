@@ -3,17 +3,22 @@ package main;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.imageio.ImageIO;
 
+import ga.SimplePopulation.SelectionMethod;
 import ga.segmentation.Individual;
+import ga.segmentation.IslandModel;
+import ga.segmentation.IslandProcesses;
 import ga.segmentation.ProblemInstance;
 import ga.segmentation.ProblemReader;
 import ga.segmentation.SegmentationGA;
 import ga.segmentation.ProblemInstance.ColorMode;
-import ga.segmentation.multiobjective.MultiObjectivePopulation;
 import ga.segmentation.multiobjective.MultiObjectiveSegmentationGA;
 import utils.ImageUtils;
+import utils.RandomGenerator;
 
 /**
  * Entry point
@@ -52,34 +57,72 @@ public class Main {
 		// Get the mode from the config (weighted sum or MOEA)
 		mode = Mode.valueOf(config.get("mode"));
 		
-		// Init GA
-		SegmentationGA sga =
-			mode == Mode.WEIGHTED_SUM_GA ? new SegmentationGA(instance, config.getFloat("mutationRate"), config.getFloat("crossoverRate")) :
-			mode == Mode.MOEA ? new MultiObjectiveSegmentationGA(instance, config.getFloat("mutationRate"), config.getFloat("crossoverRate")) :
-			null;
-			
-		if(sga == null) {
-			System.err.println("[Critical Error] Couldn't parse GA mode.");
-			System.exit(1);
+		// Island worker process (started by the coordinator of a multi-process island model): run a single island
+		int threads = config.getInt("threads") > 0 ? config.getInt("threads") : Runtime.getRuntime().availableProcessors();
+		RandomGenerator.Algorithm randomAlgorithm = RandomGenerator.Algorithm.valueOf(config.get("randomGenerator").trim());
+		if(args.length == 4 && args[0].equals(IslandProcesses.WORKER_ARGUMENT)) {
+			SegmentationGA sga = createGA(instance, Math.max(1, threads / config.getInt("islandProcesses")));
+			sga.setRandomGenerator(RandomGenerator.create(randomAlgorithm, Long.parseLong(args[3])));
+			try {
+				IslandProcesses.runWorker(sga, Integer.parseInt(args[1]), Integer.parseInt(args[2]), 
+						config.getInt("generations"), config.getInt("migrationInterval"), config.getInt("migrants"));
+			} catch(IOException e) {
+				System.err.println("[Critical Error] Island worker lost its connection: " + e.getMessage());
+				System.exit(1);
+			}
+			return;
 		}
 		
-		sga.setElites(config.getInt("elites"));
-		sga.initializePopulation();
+		// Seed the random generator (with a random seed if none is given, printed so that the run can be reproduced)
+		String seedProperty = config.get("seed").trim();
+		long seed = seedProperty.isEmpty() ? System.nanoTime() : Long.parseLong(seedProperty);
+		System.out.println("Random seed: " + seed);
+		RandomGenerator random = RandomGenerator.create(randomAlgorithm, seed);
+		
+		// Multi-process island model: run one island per worker process, then save the gathered results (also on interruption)
+		int islandProcesses = config.getInt("islandProcesses");
+		if(islandProcesses > 1) {
+			try {
+				IslandProcesses.runCoordinator(createGA(instance, 1), islandProcesses, random, config.getInt("generations"), 
+						config.getInt("migrationInterval"), IslandModel.Topology.valueOf(config.get("migrationTopology").trim()), results -> {
+					System.out.println(mode == Mode.MOEA ? "Saving first front" : "Saving fittest");
+					for(Individual i : results)
+						saveImages(instance, i);
+				});
+			} catch(IOException e) {
+				System.err.println("[Critical Error] Island model failed: " + e.getMessage());
+				System.exit(1);
+			}
+			return;
+		}
+		
+		// Init GA (one per island, sharing the worker threads)
+		int numIslands = config.getInt("islands");
+		List<SegmentationGA> gas = new ArrayList<SegmentationGA>();
+		for(int i = 0; i < numIslands; i++) {
+			SegmentationGA sga = createGA(instance, Math.max(1, threads / numIslands));
+			sga.setRandomGenerator(numIslands == 1 ? random : random.split());
+			gas.add(sga);
+		}
+		
+		IslandModel islands = new IslandModel(gas, IslandModel.Topology.valueOf(config.get("migrationTopology").trim()), 
+				config.getInt("migrationInterval"), config.getInt("migrants"));
+		islands.initializePopulations();
 		
 		// on weighted-sum GA termination: save fittest
 		Runnable onTerminationGA = () ->  {
 			System.out.println("Saving fittest");
-	        saveImages(instance, ((Individual) sga.getPopulation().getFittestIndividual()));			
+	        saveImages(instance, islands.getFittestIndividual());			
 		};
 		
 		// on MOEA termination: save first front
 		Runnable onTerminationMOEA = () ->  {
 			System.out.println("Saving first front");
-			for(Individual i : ((MultiObjectivePopulation) sga.getPopulation()).getFirstFront())
+			for(Individual i : islands.getFirstFront())
 				saveImages(instance, i);
 		};
 		
-		Runnable onFinish = sga instanceof MultiObjectiveSegmentationGA ? onTerminationMOEA : onTerminationGA;
+		Runnable onFinish = mode == Mode.MOEA ? onTerminationMOEA : onTerminationGA;
 		
 		// Define the shutdown hook to execute on termination
 		Runtime.getRuntime().addShutdownHook(new Thread(onFinish));
@@ -87,12 +130,40 @@ public class Main {
 		for(int i = 0; i < config.getInt("generations"); i++) {
 			long time = System.nanoTime();
 			System.out.println("---------- Running generation #" + i + " ----------");
-			sga.runGeneration();
-			sga.printState();
+			islands.runGeneration();
+			islands.printState();
 			System.out.println("(" + (System.nanoTime() - time) / 1000000 + " ms)");
 		}
 	}
 	
+	/**
+	 * Creates a GA for the configured mode.
+	 * @param pi - A problem instance
+	 * @param threads - The number of worker threads of the GA
+	 * @return a new GA
+	 */
+	private static SegmentationGA createGA(ProblemInstance pi, int threads) {
+		SegmentationGA sga =
+			mode == Mode.WEIGHTED_SUM_GA ? new SegmentationGA(pi, config.getFloat("mutationRate"), config.getFloat("crossoverRate")) :
+			mode == Mode.MOEA ? new MultiObjectiveSegmentationGA(pi, config.getFloat("mutationRate"), config.getFloat("crossoverRate")) :
+			null;
+			
+		if(sga == null) {
+			System.err.println("[Critical Error] Couldn't parse GA mode.");
+			System.exit(1);
+		}
+		
+		// Fitness-proportionate selection would ignore the fronts and crowding distances that define MOEA selection
+		if(mode == Mode.MOEA && SelectionMethod.valueOf(config.get("MOEA_selection").trim()) == SelectionMethod.STOCHASTIC_UNIVERSAL_SAMPLING) {
+			System.err.println("[Critical Error] MOEA_selection can't be STOCHASTIC_UNIVERSAL_SAMPLING (it selects on the weighted-sum fitness), use TOURNAMENT or RANK.");
+			System.exit(1);
+		}
+		
+		sga.setElites(config.getInt("elites"));
+		sga.setThreads(threads);
+		return sga;
+	}
+	
 	/**
 	 * Saves an individual's segmentation images
 	 * @param pi - A problem instance
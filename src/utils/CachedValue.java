@@ -16,7 +16,7 @@ public class CachedValue<T> {
 	private boolean needsUpdating;
 	
 	// The function responsible for re-calculating the value upon request
-	private Supplier<T> updateFunction;
+	protected Supplier<T> updateFunction;
 	
 	/**
 	 * Create a new CachedValue with the given initial value and update function
@@ -55,6 +55,32 @@ public class CachedValue<T> {
 		this.needsUpdating = true;
 	}
 	
+	/**
+	 * Check whether the cached value is up to date.
+	 * @return true if the value doesn't need to be re-calculated upon the next access, else false
+	 */
+	public boolean isUpToDate() {
+		return !needsUpdating;
+	}
+	
+	/**
+	 * Directly set the cached value, e.g. when it was updated incrementally. The value is considered up to date.
+	 * @param value - The new value
+	 */
+	public void setValue(T value) {
+		this.value = value;
+		this.needsUpdating = false;
+	}
+	
+	/**
+	 * Copy the value and state of another CachedValue into this one, keeping this CachedValue's update function.
+	 * @param source - Another CachedValue
+	 */
+	public void copyValue(CachedValue<T> source) {
+		this.value = source.value;
+		this.needsUpdating = source.needsUpdating;
+	}
+	
 	/**
 	 * Creates a fully independent copy of this CachedValue.
 	 * @return a new CachedValue instance with the same value and update function.
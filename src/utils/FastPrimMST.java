@@ -1,79 +1,68 @@
 package utils;
 
-import java.util.TreeSet; 
-
 
 /**
  * Creates Minimum Spanning Trees using Prim's algorithm.
  * @author Kelian Baert & Caroline de Pourtales
  */
-public class FastPrimMST { 
+public class FastPrimMST {
+	// Number of children of each node of the priority queue
+	private static final int HEAP_ARITY = 4;
+
 	/**
 	 * Creates a Minimum Spanning Tree (MST) for a given graph, starting at a given node.
 	 * @param graph - A graph as an adjacency matrix
 	 */
-	public static Tree createMinimumSpanningTree(WeightedGraph graph, int startingNode) { 
+	public static Tree createMinimumSpanningTree(WeightedGraph graph, int startingNode) {
 		int n = graph.getNumVertices();
 		Tree tree = new Tree(startingNode, n);
-		
-		VertexKeyPair[] keyMap = new VertexKeyPair[n]; 
-		
+
 		// Whether a vertex was removed from the queue or not (initially all false)
-		boolean[] mstSet = new boolean[n]; 
-		
-		for(int i = 0; i < n; i++)
-			keyMap[i] = new VertexKeyPair(i, Float.MAX_VALUE); 
-		
-		// Set the key value of the origin node to 0 so that it is extracted first out of the queue 
-		keyMap[startingNode].key = 0; 
+		boolean[] mstSet = new boolean[n];
+
+		// Use an indexed heap with decrease-key for fast implementation.
+		// Vertices are only added to the queue once they are reached, with the key of the origin node set to 0 so that it is extracted first
+		IndexedHeap queue = new IndexedHeap(n, HEAP_ARITY);
+		queue.insert(startingNode, 0);
+
+		// Lowest vertex that might not have been reached yet (used if the graph isn't connected)
+		int nextUnreached = 0;
 
-		// Use TreeSet for fast implementation 
-		TreeSet<VertexKeyPair> queue = new TreeSet<VertexKeyPair>();
+		// Keep going until all vertices were extracted
+		for(int extracted = 0; extracted < n; extracted++) {
+			// Extracts a node with min key value (or the lowest unreached vertex if no other vertex can be reached)
+			int u;
+			if(!queue.isEmpty())
+				u = queue.poll();
+			else {
+				while(mstSet[nextUnreached])
+					nextUnreached++;
+				u = nextUnreached;
+			}
 
-		for(int o = 0; o < n; o++) 
-			queue.add(keyMap[o]);	
-	
-		// Keep going until the queue is empty 
-		while(!queue.isEmpty()) {
-			// Extracts a node with min key value 
-			int u = queue.pollFirst().vertex;
-			
-			mstSet[u] = true; 
+			mstSet[u] = true;
 
 			// For all adjacent nodes
-			for(WeightedConnection conn : graph.getConnections(u)) { 
-				int v = conn.getVertex();
+			for(int slot = 0; slot < graph.getNumSlots(u); slot++) {
+				int v = graph.getConnectedVertex(u, slot);
 				// If the node wasn't removed from the queue
-				if(!mstSet[v]) {
-					VertexKeyPair pair = keyMap[v];
+				if(v != -1 && !mstSet[v]) {
+					float weight = graph.getConnectionWeight(u, slot);
+					if(!queue.contains(v)) {
+						// First time the vertex is reached
+						tree.setParent(v, u);
+						queue.insert(v, weight);
+					}
 					// If the key value of the adjacent vertex is more than the extracted key
-					if(conn.getWeight() < pair.key) { 
+					else if(weight < queue.getKey(v)) {
 						// Then update the key value of the adjacent vertex.
-						// To update the queue, remove the node and add it again.
-						tree.setParent(v, u); 
-						queue.remove(pair);
-						pair.key = conn.getWeight();
-						queue.add(pair); 
-					} 
-				} 
-			} 
-		} 
-		
-		return tree;
-	} 
-
-	private static class VertexKeyPair implements Comparable<VertexKeyPair> {
-		public int vertex;
-		public float key;
-		
-		public VertexKeyPair(int vertex, float key) {
-			this.vertex = vertex;
-			this.key = key;
+						tree.setParent(v, u);
+						queue.decreaseKey(v, weight);
+					}
+				}
+			}
 		}
 
-		@Override
-		public int compareTo(VertexKeyPair pair) {
-			return (int) Math.signum(key == pair.key ? vertex - pair.vertex : key - pair.key);
-		}
+		return tree;
 	}
 }
@@ -0,0 +1,77 @@
+package utils;
+
+/**
+ * A weighted graph in which each cell of a grid is connected to its 4 cardinal neighbors.
+ * Connections are implicit (no edge arrays): each vertex has 4 slots (right, left, up, down), empty on the borders of the grid.
+ * @author Kelian Baert & Caroline de Pourtales
+ */
+public class GridGraph extends WeightedGraph {
+	// Slot of each neighbor
+	public static final int RIGHT = 0, LEFT = 1, UP = 2, DOWN = 3;
+
+	// Size of the grid
+	private int width, height;
+
+	// Weight of the connection in each slot, indexed by slot then by vertex
+	private float[][] weights;
+
+	/**
+	 * Create a grid graph.
+	 * @param width - The width of the grid
+	 * @param height - The height of the grid
+	 * @param weights - The weight of each connection, as 4 arrays (right, left, up, down) indexed by vertex (y*width+x)
+	 */
+	public GridGraph(int width, int height, float[][] weights) {
+		super(null, null, null);
+		this.width = width;
+		this.height = height;
+		this.weights = weights;
+	}
+
+	@Override
+	public int getNumSlots(int vertex) {
+		return 4;
+	}
+
+	@Override
+	public int getConnectedVertex(int vertex, int slot) {
+		switch(slot) {
+			case RIGHT:
+				return vertex % width == width - 1 ? -1 : vertex + 1;
+			case LEFT:
+				return vertex % width == 0 ? -1 : vertex - 1;
+			case UP:
+				return vertex < width ? -1 : vertex - width;
+			case DOWN:
+				return vertex >= width * (height - 1) ? -1 : vertex + width;
+			default:
+				return -1;
+		}
+	}
+
+	@Override
+	public float getConnectionWeight(int vertex, int slot) {
+		return weights[slot][vertex];
+	}
+
+	@Override
+	public int getNumVertices() {
+		return width * height;
+	}
+
+	/**
+	 * Get the width of the grid.
+	 * @return the width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Get the height of the grid.
+	 * @return the height
+	 */
+	public int getHeight() {
+		return height;
+	}
+}
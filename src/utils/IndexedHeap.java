@@ -0,0 +1,166 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * A d-ary min-heap of integer items (between 0 and a fixed capacity) with float keys, supporting decrease-key.
+ * Items are stored in primitive arrays, along with the position of each item in the heap.
+ * Items with equal keys are ordered by increasing item index.
+ * @author Kelian Baert & Caroline de Pourtales
+ */
+public class IndexedHeap {
+	// Marker for items that aren't in the heap
+	private static final int NOT_IN_HEAP = -1;
+
+	// Number of children of each heap node
+	private int arity;
+
+	// Items in heap order
+	private int[] heap;
+
+	// Position of each item in the heap (or NOT_IN_HEAP)
+	private int[] positions;
+
+	// Key of each item
+	private float[] keys;
+
+	// Number of items in the heap
+	private int size;
+
+	/**
+	 * Create an empty heap.
+	 * @param capacity - The number of possible items (items range from 0 to capacity-1)
+	 * @param arity - The number of children of each heap node (at least 2)
+	 */
+	public IndexedHeap(int capacity, int arity) {
+		this.arity = arity;
+		this.heap = new int[capacity];
+		this.positions = new int[capacity];
+		this.keys = new float[capacity];
+		Arrays.fill(positions, NOT_IN_HEAP);
+	}
+
+	/**
+	 * Insert an item in the heap.
+	 * @param item - An item that isn't in the heap yet
+	 * @param key - The key of the item
+	 */
+	public void insert(int item, float key) {
+		keys[item] = key;
+		positions[item] = size;
+		heap[size] = item;
+		size++;
+		siftUp(positions[item]);
+	}
+
+	/**
+	 * Decrease the key of an item in the heap.
+	 * @param item - An item in the heap
+	 * @param key - The new key, lower than or equal to the current one
+	 */
+	public void decreaseKey(int item, float key) {
+		keys[item] = key;
+		siftUp(positions[item]);
+	}
+
+	/**
+	 * Remove the item with the lowest key from the heap.
+	 * @return the removed item
+	 */
+	public int poll() {
+		int min = heap[0];
+		positions[min] = NOT_IN_HEAP;
+		size--;
+		if(size > 0) {
+			heap[0] = heap[size];
+			positions[heap[0]] = 0;
+			siftDown(0);
+		}
+		return min;
+	}
+
+	/**
+	 * Check whether an item is in the heap.
+	 * @param item - An item
+	 * @return true if the item is in the heap, else false
+	 */
+	public boolean contains(int item) {
+		return positions[item] != NOT_IN_HEAP;
+	}
+
+	/**
+	 * Get the key of an item.
+	 * @param item - An item
+	 * @return the last key given to the item
+	 */
+	public float getKey(int item) {
+		return keys[item];
+	}
+
+	/**
+	 * Check whether the heap is empty.
+	 * @return true if the heap contains no items, else false
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Get the number of items in the heap.
+	 * @return the size of the heap
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Move the item at a given position up until the heap property is restored.
+	 */
+	private void siftUp(int pos) {
+		int item = heap[pos];
+		while(pos > 0) {
+			int parentPos = (pos - 1) / arity;
+			int parent = heap[parentPos];
+			if(!lessThan(item, parent))
+				break;
+			heap[pos] = parent;
+			positions[parent] = pos;
+			pos = parentPos;
+		}
+		heap[pos] = item;
+		positions[item] = pos;
+	}
+
+	/**
+	 * Move the item at a given position down until the heap property is restored.
+	 */
+	private void siftDown(int pos) {
+		int item = heap[pos];
+		while(true) {
+			int firstChild = pos * arity + 1;
+			if(firstChild >= size)
+				break;
+			// Find the smallest child
+			int lastChild = Math.min(firstChild + arity, size);
+			int minPos = firstChild;
+			for(int c = firstChild + 1; c < lastChild; c++) {
+				if(lessThan(heap[c], heap[minPos]))
+					minPos = c;
+			}
+			if(!lessThan(heap[minPos], item))
+				break;
+			heap[pos] = heap[minPos];
+			positions[heap[pos]] = pos;
+			pos = minPos;
+		}
+		heap[pos] = item;
+		positions[item] = pos;
+	}
+
+	/**
+	 * Compare two items by key, then by index.
+	 */
+	private boolean lessThan(int a, int b) {
+		return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+	}
+}
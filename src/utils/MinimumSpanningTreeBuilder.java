@@ -0,0 +1,16 @@
+package utils;
+
+/**
+ * An algorithm that creates Minimum Spanning Trees.
+ * @author Kelian Baert & Caroline de Pourtales
+ */
+@FunctionalInterface
+public interface MinimumSpanningTreeBuilder {
+	/**
+	 * Creates a Minimum Spanning Tree (MST) for a given graph, rooted at a given node.
+	 * @param graph - A connected weighted graph
+	 * @param startingNode - The root of the tree
+	 * @return a minimum spanning tree of the graph
+	 */
+	public Tree createMinimumSpanningTree(WeightedGraph graph, int startingNode);
+}
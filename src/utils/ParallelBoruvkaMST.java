@@ -0,0 +1,181 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Creates Minimum Spanning Trees of grid graphs using a parallel version of Boruvka's algorithm.
+ * In each round, every component picks its lightest outgoing edge (in parallel, on the common fork-join pool),
+ * then components are merged along the picked edges. The number of components at least halves with each round.
+ * @author Kelian Baert & Caroline de Pourtales
+ */
+public class ParallelBoruvkaMST {
+	// Number of vertices processed by each parallel task
+	private static final int CHUNK_SIZE = 4096;
+
+	// Marker for components that have no outgoing edge
+	private static final long NO_EDGE = Long.MAX_VALUE;
+
+	// Slots of the edges that are visited from each vertex (each edge is visited once)
+	private static final int[] FORWARD_SLOTS = {GridGraph.RIGHT, GridGraph.DOWN};
+
+	/**
+	 * Creates a Minimum Spanning Tree (MST) for a given graph, rooted at a given node.
+	 * Graphs that aren't grid graphs are delegated to FastPrimMST.
+	 * @param graph - A graph
+	 * @param startingNode - The root of the tree
+	 */
+	public static Tree createMinimumSpanningTree(WeightedGraph graph, int startingNode) {
+		if(!(graph instanceof GridGraph))
+			return FastPrimMST.createMinimumSpanningTree(graph, startingNode);
+
+		GridGraph grid = (GridGraph) graph;
+		int width = grid.getWidth(), n = grid.getNumVertices();
+		int numChunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+		// Edges are identified by 2*vertex for the edge to the right neighbor, and 2*vertex+1 for the edge to the lower neighbor
+		boolean[] inTree = new boolean[2 * n];
+
+		// Union-find forest of the components, and size of each component (only valid for roots)
+		int[] components = new int[n], componentSizes = new int[n];
+		int[] labels = new int[n];
+		for(int v = 0; v < n; v++) {
+			components[v] = v;
+			componentSizes[v] = 1;
+		}
+
+		// Roots of the current components
+		int[] roots = new int[n];
+		int numRoots = n;
+		for(int v = 0; v < n; v++)
+			roots[v] = v;
+
+		// Lightest outgoing edge of each component, as a key (see getEdgeKey)
+		AtomicLongArray lightestEdges = new AtomicLongArray(n);
+
+		while(numRoots > 1) {
+			// Label each vertex with the root of its component
+			final int[] forest = components, vertexLabels = labels;
+			IntStream.range(0, numChunks).parallel().forEach(chunk -> {
+				for(int v = chunk * CHUNK_SIZE; v < Math.min(n, (chunk + 1) * CHUNK_SIZE); v++)
+					vertexLabels[v] = find(forest, v);
+			});
+			// The labels form a flattened forest, use them as the new one
+			labels = components;
+			components = vertexLabels;
+
+			// Find the lightest outgoing edge of each component
+			for(int r = 0; r < numRoots; r++)
+				lightestEdges.set(roots[r], NO_EDGE);
+			IntStream.range(0, numChunks).parallel().forEach(chunk -> {
+				for(int v = chunk * CHUNK_SIZE; v < Math.min(n, (chunk + 1) * CHUNK_SIZE); v++) {
+					int label = vertexLabels[v];
+					for(int slot : FORWARD_SLOTS) {
+						int u = grid.getConnectedVertex(v, slot);
+						if(u != -1 && vertexLabels[u] != label) {
+							long key = getEdgeKey(grid.getConnectionWeight(v, slot), slot == GridGraph.RIGHT ? 2 * v : 2 * v + 1);
+							minimize(lightestEdges, label, key);
+							minimize(lightestEdges, vertexLabels[u], key);
+						}
+					}
+				}
+			});
+
+			// Merge the components along their lightest edges
+			int merges = 0;
+			for(int r = 0; r < numRoots; r++) {
+				long key = lightestEdges.get(roots[r]);
+				if(key == NO_EDGE)
+					continue;
+				int edge = (int) key;
+				int a = find(components, edge / 2),
+					b = find(components, edge % 2 == 0 ? edge / 2 + 1 : edge / 2 + width);
+				// The edge may have been picked by both of its components
+				if(a != b) {
+					// Union by size
+					if(componentSizes[a] < componentSizes[b]) {
+						int tmp = a; a = b; b = tmp;
+					}
+					components[b] = a;
+					componentSizes[a] += componentSizes[b];
+					inTree[edge] = true;
+					merges++;
+				}
+			}
+			if(merges == 0)
+				break;
+
+			// Only keep the roots that weren't merged into another component
+			int remaining = 0;
+			for(int r = 0; r < numRoots; r++) {
+				if(components[roots[r]] == roots[r])
+					roots[remaining++] = roots[r];
+			}
+			numRoots = remaining;
+		}
+
+		return createTree(grid, inTree, startingNode);
+	}
+
+	/**
+	 * Orient the edges of a spanning tree away from a given root (breadth-first).
+	 */
+	private static Tree createTree(GridGraph grid, boolean[] inTree, int startingNode) {
+		int n = grid.getNumVertices();
+		Tree tree = new Tree(startingNode, n);
+		boolean[] visited = new boolean[n];
+		int[] queue = new int[n];
+		int head = 0, tail = 0;
+		queue[tail++] = startingNode;
+		visited[startingNode] = true;
+		while(head < tail) {
+			int v = queue[head++];
+			for(int slot = 0; slot < grid.getNumSlots(v); slot++) {
+				int u = grid.getConnectedVertex(v, slot);
+				if(u == -1 || visited[u])
+					continue;
+				int edge = slot == GridGraph.RIGHT ? 2 * v :
+					slot == GridGraph.LEFT ? 2 * u :
+					slot == GridGraph.DOWN ? 2 * v + 1 :
+					2 * u + 1;
+				if(inTree[edge]) {
+					tree.setParent(u, v);
+					visited[u] = true;
+					queue[tail++] = u;
+				}
+			}
+		}
+		if(tail != n)
+			System.err.println("[MST ERROR] " + (n - tail) + " vertices are not connected to the root.");
+		return tree;
+	}
+
+	/**
+	 * Get a key for an edge, such that keys are ordered by weight, then by edge identifier.
+	 * This total order guarantees that the edges picked in a round never form a cycle.
+	 */
+	private static long getEdgeKey(float weight, int edge) {
+		// Flip the bits of negative floats so that the integer order matches the float order
+		int bits = Float.floatToIntBits(weight);
+		bits ^= (bits >> 31) & 0x7fffffff;
+		return ((long) bits << 32) | edge;
+	}
+
+	/**
+	 * Atomically replace the value at a given index by a key if the key is lower.
+	 */
+	private static void minimize(AtomicLongArray values, int index, long key) {
+		long current = values.get(index);
+		while(key < current && !values.compareAndSet(index, current, key))
+			current = values.get(index);
+	}
+
+	/**
+	 * Find the root of the component of a vertex.
+	 */
+	private static int find(int[] components, int v) {
+		while(components[v] != v)
+			v = components[v];
+		return v;
+	}
+}
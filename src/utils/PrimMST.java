@@ -50,15 +50,16 @@ public class PrimMST {
 			
 			// Update key value and parent index of the adjacent vertices of the picked vertex. 
 			// Consider only those vertices which are not yet included in the MST
-			for(WeightedConnection conn : graph.getConnections(u)) {
-				int v = conn.getVertex();
+			for(int slot = 0; slot < graph.getNumSlots(u); slot++) {
+				int v = graph.getConnectedVertex(u, slot);
 				// graph[u][v] is non zero only for adjacent vertices of m 
 				// mstSet[v] is false for vertices not yet included in MST 
 				// Update the key only if graph[u][v] is smaller than key[v] 
-				if(!mstSet[v]) {
+				if(v != -1 && !mstSet[v]) {
 					VertexKeyPair pair = keyMap[v];
-					if(conn.getWeight() < pair.key) {
-						pair.key = conn.getWeight();
+					float weight = graph.getConnectionWeight(u, slot);
+					if(weight < pair.key) {
+						pair.key = weight;
 						tree.setParent(v, u);
 						key.remove(pair);
 						key.add(binarySearch(key, pair), pair);
@@ -22,13 +22,14 @@ public class PrimTest {
 		// Print the solution 
 		t.primMST(graph); 
 		
-		WeightedGraph wg = new WeightedGraph(graph.length);
+		WeightedGraph.Builder builder = new WeightedGraph.Builder(graph.length);
 		for(int i = 0; i < graph.length; i++) {
 			for(int j = 0; j < graph[i].length; j++) {
 				if(graph[i][j] != 0)
-					wg.addConnection(i, j, graph[i][j]);
+					builder.addConnection(i, j, graph[i][j]);
 			}
 		}
+		WeightedGraph wg = builder.build();
 		
 		Tree tree = FastPrimMST.createMinimumSpanningTree(wg, 0);
 		String str = "Edges\n"; 
@@ -0,0 +1,72 @@
+package utils;
+
+/**
+ * A seedable random number generator, not synchronized (each thread should use its own generator).
+ * Generators can be split into independent child streams, e.g. one per parallel task, so that parallel runs are reproducible.
+ * @author Kelian Baert & Caroline de Pourtales
+ */
+public interface RandomGenerator {
+	// Available implementations
+	public static enum Algorithm {XOROSHIRO, SPLITTABLE};
+	
+	/**
+	 * Create a random generator.
+	 * @param algorithm - The implementation to use
+	 * @param seed - The seed of the generator
+	 * @return a new random generator
+	 */
+	public static RandomGenerator create(Algorithm algorithm, long seed) {
+		switch(algorithm) {
+			case SPLITTABLE:
+				return new SplittableRandomGenerator(seed);
+			case XOROSHIRO:
+			default:
+				return new XoroshiroRandom(seed);
+		}
+	}
+	
+	/**
+	 * Get 64 random bits.
+	 * @return a random long
+	 */
+	public long nextLong();
+	
+	/**
+	 * Create an independent generator, seeded from this one. Advances the state of this generator.
+	 * @return a new random generator
+	 */
+	public RandomGenerator split();
+	
+	/**
+	 * Get a given number of random bits at once (the high bits of a random word).
+	 * @param numBits - The number of bits, between 1 and 64
+	 * @return a random long with numBits significant bits
+	 */
+	public default long nextBits(int numBits) {
+		return nextLong() >>> (64 - numBits);
+	}
+	
+	/**
+	 * Get a random int.
+	 * @return a random int
+	 */
+	public default int nextInt() {
+		return (int) nextBits(32);
+	}
+	
+	/**
+	 * Get a random float in [0,1[.
+	 * @return a random float between 0 (inclusive) and 1 (exclusive)
+	 */
+	public default float nextFloat() {
+		return nextBits(24) / ((float) (1 << 24));
+	}
+	
+	/**
+	 * Get a random double in [0,1[.
+	 * @return a random double between 0 (inclusive) and 1 (exclusive)
+	 */
+	public default double nextDouble() {
+		return nextBits(53) / ((double) (1L << 53));
+	}
+}
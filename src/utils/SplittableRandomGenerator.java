@@ -0,0 +1,33 @@
+package utils;
+
+import java.util.SplittableRandom;
+
+/**
+ * A random number generator backed by java.util.SplittableRandom.
+ * @author Kelian Baert & Caroline de Pourtales
+ */
+public class SplittableRandomGenerator implements RandomGenerator {
+	private SplittableRandom random;
+	
+	/**
+	 * Create a new generator.
+	 * @param seed - The seed of the generator
+	 */
+	public SplittableRandomGenerator(long seed) {
+		this(new SplittableRandom(seed));
+	}
+	
+	private SplittableRandomGenerator(SplittableRandom random) {
+		this.random = random;
+	}
+	
+	@Override
+	public long nextLong() {
+		return random.nextLong();
+	}
+	
+	@Override
+	public RandomGenerator split() {
+		return new SplittableRandomGenerator(random.split());
+	}
+}
@@ -0,0 +1,71 @@
+package utils;
+
+import java.util.function.Supplier;
+
+/**
+ * A thread-safe CachedValue: all accesses are synchronized on a given lock.
+ * Values that update each other (e.g. several values computed at once) should share the same lock, to avoid deadlocks.
+ * @author Kelian Baert & Caroline de Pourtales
+ * @param <T>
+ */
+public class SynchronizedCachedValue<T> extends CachedValue<T> {
+	// The object on which accesses are synchronized
+	private final Object lock;
+
+	/**
+	 * Create a new SynchronizedCachedValue with the given update function.
+	 * The value will be calculated upon the first access.
+	 * @param lock - The object on which to synchronize accesses
+	 * @param updateFunction - The function responsible for re-calculating the value when necessary
+	 */
+	public SynchronizedCachedValue(Object lock, Supplier<T> updateFunction) {
+		super(updateFunction);
+		this.lock = lock;
+	}
+
+	@Override
+	public T getValue() {
+		synchronized(lock) {
+			return super.getValue();
+		}
+	}
+
+	@Override
+	public void needsUpdating() {
+		synchronized(lock) {
+			super.needsUpdating();
+		}
+	}
+
+	@Override
+	public boolean isUpToDate() {
+		synchronized(lock) {
+			return super.isUpToDate();
+		}
+	}
+
+	@Override
+	public void setValue(T value) {
+		synchronized(lock) {
+			super.setValue(value);
+		}
+	}
+
+	@Override
+	public void copyValue(CachedValue<T> source) {
+		synchronized(lock) {
+			super.copyValue(source);
+		}
+	}
+
+	/**
+	 * Creates a copy of this SynchronizedCachedValue, synchronized on the same lock.
+	 * @return a new SynchronizedCachedValue instance with the same value, update function and lock.
+	 */
+	@Override
+	public CachedValue<T> copy() {
+		SynchronizedCachedValue<T> copy = new SynchronizedCachedValue<T>(lock, updateFunction);
+		copy.copyValue(this);
+		return copy;
+	}
+}
@@ -1,56 +1,57 @@
 package utils;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-
 /**
- * A simple tree representation that stores both parents and children for quick access.
+ * A simple tree representation that stores the parent of each node in a flat array.
+ * Children are stored in a compressed sparse row (CSR) array, built upon the first query after the parents were modified.
+ * Traversals are iterative, so that deep trees (e.g. long chains in minimum spanning trees) don't overflow the stack.
  * @author Kelian Baert & Caroline de Pourtales
  */
 public class Tree {
 	// A constant used to indicate that a node has no parent
 	public static final int NO_PARENT = -1;
-	
+
 	// Store the parent of each node
 	private int[] parent;
-	
-	// Store the children of each node
-	private List<Integer>[] children;
-	
+
+	// Children of each node (null after the parents were modified, until the next query rebuilds them)
+	private volatile Children children;
+
 	// Root of the tree
 	private int rootNode;
-	
+
 	/**
 	 * Create a new tree.
 	 * @param rootNode - The root node
 	 * @param size - The size of the tree
 	 */
-	@SuppressWarnings("unchecked")
 	public Tree(int rootNode, int size) {
 		this.rootNode = rootNode;
-		
-		// Initialize parent and children arrays
 		this.parent = new int[size];
-		this.children = (List<Integer>[]) (new ArrayList[size]); 
-		for(int i = 0; i < children.length; i++)
-			children[i] = new ArrayList<Integer>();
-		
 		for(int i = 0; i < size; i++)
 			parent[i] = NO_PARENT;
 	}
-		
+
+	/**
+	 * Get the number of direct children of a given node.
+	 * @param node - A node, between 0 (inclusive) and the size of the tree (exclusive)
+	 * @return the number of children of the given node
+	 */
+	public int getNumChildren(int node) {
+		int[] offsets = getChildren().offsets;
+		return offsets[node+1] - offsets[node];
+	}
+
 	/**
-	 * Get the children of a given node
+	 * Get a child of a given node.
 	 * @param node - A node, between 0 (inclusive) and the size of the tree (exclusive)
-	 * @return the children of the given node
+	 * @param index - The index of the child, between 0 (inclusive) and getNumChildren(node) (exclusive)
+	 * @return the child of the given node at the given index (children are ordered by increasing node index)
 	 */
-	public List<Integer> getChildren(int node) {
-		return children[node];
+	public int getChild(int node, int index) {
+		Children children = getChildren();
+		return children.nodes[children.offsets[node] + index];
 	}
-	
+
 	/**
 	 * Get the parent of a given node
 	 * @param node - A node, between 0 (inclusive) and the size of the tree (exclusive)
@@ -59,7 +60,7 @@ public class Tree {
 	public int getParent(int node) {
 		return parent[node];
 	}
-	
+
 	/**
 	 * Set the parent of a given node.
 	 * @param node - A node, between 0 (inclusive) and the size of the tree (exclusive)
@@ -68,14 +69,32 @@ public class Tree {
 	public void setParent(int node, int parentNode) {
 		if(parentNode == node)
 			System.err.println("[TREE ERROR] A tree node cannot be assigned as its own parent.");
-		// If the node was a child, remove it from the corresponding children list
-		if(parent[node] != NO_PARENT)
-			children[parent[node]].remove((Object) node);
-		// Assign new parent
 		parent[node] = parentNode;
-		children[parentNode].add(node);
+		// The children need to be rebuilt
+		children = null;
 	}
-	
+
+	/**
+	 * Create a copy of this tree re-rooted at a given node. The edges of the tree are unchanged,
+	 * only the parent-child relations on the path between the old root and the new one are reversed.
+	 * @param newRoot - A node, between 0 (inclusive) and the size of the tree (exclusive)
+	 * @return a new tree, rooted at the given node
+	 */
+	public Tree reroot(int newRoot) {
+		Tree tree = new Tree(newRoot, getSize());
+		System.arraycopy(parent, 0, tree.parent, 0, parent.length);
+
+		// Reverse the parents on the path from the new root to the old one
+		int previous = NO_PARENT;
+		for(int node = newRoot; node != NO_PARENT; ) {
+			int next = parent[node];
+			tree.parent[node] = previous;
+			previous = node;
+			node = next;
+		}
+		return tree;
+	}
+
 	/**
 	 * Get the root node of this tree.
 	 * @return the root node
@@ -83,7 +102,7 @@ public class Tree {
 	public int getRootNode() {
 		return rootNode;
 	}
-	
+
 	/**
 	 * Get the size of this tree.
 	 * @return the size of the tree (number of vertices)
@@ -91,70 +110,149 @@ public class Tree {
 	public int getSize() {
 		return parent.length;
 	}
-	
+
+	/**
+	 * Get the nodes of the tree in depth-first pre-order (each node comes before its children), starting from the root.
+	 * @return an array containing the nodes reachable from the root, in pre-order
+	 */
+	public int[] getPreOrder() {
+		return traverse(false);
+	}
+
+	/**
+	 * Get the nodes of the tree in depth-first post-order (each node comes after its children), starting from the root.
+	 * @return an array containing the nodes reachable from the root, in post-order
+	 */
+	public int[] getPostOrder() {
+		// A pre-order traversal that visits children in reverse order is the reverse of a post-order traversal
+		int[] order = traverse(true);
+		for(int i = 0, j = order.length - 1; i < j; i++, j--) {
+			int tmp = order[i];
+			order[i] = order[j];
+			order[j] = tmp;
+		}
+		return order;
+	}
+
 	/**
 	 * Compute the total number of children (including indirect ones) of each tree node.
-	 * @return a Map containing the total number of children of each node
+	 * @return an array containing the total number of children of each node
 	 */
-	public Map<Integer, Integer> computeNumberOfChildren() {
-		Map<Integer, Integer> storage = new HashMap<Integer, Integer>();
-		computeNumberOfChildren(getRootNode(), storage);
-		return storage;
+	public int[] computeNumberOfChildren() {
+		int[] numberOfChildren = new int[getSize()];
+		// Children come after their parents in pre-order, so going backwards gives the children's totals first
+		int[] order = getPreOrder();
+		for(int i = order.length - 1; i > 0; i--) {
+			int node = order[i];
+			numberOfChildren[parent[node]] += numberOfChildren[node] + 1;
+		}
+		return numberOfChildren;
 	}
-	
+
 	/**
-	 * Recursively compute the total number of children (including indirect ones) of a given node, 
-	 * storing results for the whole sub-tree in a given Map.
-	 * @param node - A node, between 0 (inclusive) and the size of the tree (exclusive)
-	 * @param allChildren - A map used for storage
-	 * @return the total number of chidren of the given node
+	 * Iterative depth-first pre-order traversal from the root.
+	 * @param reverseChildren - Whether to visit the children of each node in reverse order
 	 */
-	private int computeNumberOfChildren(int node, Map<Integer, Integer> allChildren) {
-		if(allChildren.containsKey(node))
-			return allChildren.get(node);
-		int c = getChildren(node).size();
-		for(int child : getChildren(node))
-			c += computeNumberOfChildren(child, allChildren);
-		allChildren.put(node, c);
-		return c;
-	}
-	
+	private int[] traverse(boolean reverseChildren) {
+		Children children = getChildren();
+		int[] offsets = children.offsets;
+		int[] order = new int[getSize()];
+		int[] stack = new int[getSize()];
+		int visited = 0, stackSize = 0;
+		stack[stackSize++] = rootNode;
+		while(stackSize > 0) {
+			int node = stack[--stackSize];
+			order[visited++] = node;
+			// Push the children so that they are popped in the requested order
+			if(reverseChildren) {
+				for(int c = offsets[node]; c < offsets[node+1]; c++)
+					stack[stackSize++] = children.nodes[c];
+			}
+			else {
+				for(int c = offsets[node+1] - 1; c >= offsets[node]; c--)
+					stack[stackSize++] = children.nodes[c];
+			}
+		}
+		if(visited == order.length)
+			return order;
+		int[] reachable = new int[visited];
+		System.arraycopy(order, 0, reachable, 0, visited);
+		return reachable;
+	}
+
+	/**
+	 * Get the children of each node, building them if the parents were modified.
+	 */
+	private Children getChildren() {
+		Children built = children;
+		if(built != null)
+			return built;
+
+		// Count the children of each node, then turn the counts into offsets
+		int n = getSize();
+		int[] offsets = new int[n + 1];
+		for(int i = 0; i < n; i++) {
+			if(parent[i] != NO_PARENT)
+				offsets[parent[i] + 1]++;
+		}
+		for(int i = 0; i < n; i++)
+			offsets[i+1] += offsets[i];
+
+		// Place each node in the next free slot of its parent
+		int[] next = new int[n];
+		System.arraycopy(offsets, 0, next, 0, n);
+		int[] childArray = new int[offsets[n]];
+		for(int i = 0; i < n; i++) {
+			if(parent[i] != NO_PARENT)
+				childArray[next[parent[i]]++] = i;
+		}
+
+		// Both arrays are published at once, so that readers never pair offsets with the nodes of another build
+		built = new Children(offsets, childArray);
+		children = built;
+		return built;
+	}
+
 	/**
 	 * Test the integrity of the tree a print potential problems.
 	 */
 	public void test() {
-		// Test for non-root nodes having no parents
+		// Test for non-root nodes having no parents, and nodes being their own parents
 		for(int i = 0; i < getSize(); i++) {
 			if(parent[i] == NO_PARENT && i != getRootNode())
 				System.err.println("[TREE ERROR] Non-root node has no parent");
+			if(parent[i] == i)
+				System.err.println("[TREE ERROR] Child is its own parent");
 		}
-		
-		// Test for nodes being their own parents, or belonging to two children list
-		List<Integer> visitedChildren = new ArrayList<Integer>();
-		for(int i = 0; i < parent.length; i++) {
-			for(int j = 0; j < getChildren(i).size(); j++) {
-				int child = getChildren(i).get(j);
-				if(child == i)
-					System.err.println("[TREE ERROR] Child is its own parent");
-				if(visitedChildren.contains(child))
-					System.err.println("[TREE ERROR] Child has two parents");
-				else
-					visitedChildren.add(child);
-			}
-		}
-		
-		// Test for non-connected nodes
-		/*for(int i = 0; i < getSize(); i++) {
-			if(!visitedChildren.contains(i) && i != getRootNode())
-				System.out.println("[TREE ERROR] Node " + i + " is not connected");
-		}*/
-	}
-	
+
+		// Test for cycles and non-connected nodes
+		if(getPreOrder().length != getSize())
+			System.err.println("[TREE ERROR] Some nodes are not connected to the root");
+	}
+
 	@Override
 	public String toString() {
-		String str = "";
-		for(int i = 0; i < children.length; i++)
-			str += i + ": " + String.join(",", children[i].stream().map(val -> val+"").collect(Collectors.toList())) + "\n";
-		return str;
+		StringBuilder str = new StringBuilder();
+		for(int i = 0; i < getSize(); i++) {
+			str.append(i).append(": ");
+			for(int c = 0; c < getNumChildren(i); c++)
+				str.append(c == 0 ? "" : ",").append(getChild(i, c));
+			str.append("\n");
+		}
+		return str.toString();
+	}
+
+	/**
+	 * The children of each node in compressed sparse row (CSR) form: the children of node v are
+	 * nodes[offsets[v]] to nodes[offsets[v+1] - 1], by increasing index.
+	 */
+	private static class Children {
+		private final int[] offsets;
+		private final int[] nodes;
+
+		public Children(int[] offsets, int[] nodes) {
+			this.offsets = offsets;
+			this.nodes = nodes;
+		}
 	}
-}
\ No newline at end of file
+}
@@ -1,47 +1,80 @@
 package utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
- * A simple representation of a weighted graph, using adjacency list representation.
+ * A simple representation of a weighted graph, using compressed sparse row (CSR) representation.
+ * The connections of each vertex are stored in consecutive slots of flat arrays, in the order they were added.
+ * Use a WeightedGraph.Builder to create a graph.
  * @author Kelian Baert & Caroline de Pourtales
  */
 public class WeightedGraph {
-	// Adjacency list
-	private List<WeightedConnection>[] connections;
-	
+	// Index of the first slot of each vertex (the slots of vertex v range from offsets[v] to offsets[v+1])
+	private int[] offsets;
+
+	// End vertex and weight of each connection
+	private int[] targets;
+	private float[] weights;
+
 	/**
-	 * Create a new weighted graph.
-	 * @param numVertices - The total number of vertices in the graph
+	 * Create a new weighted graph from CSR arrays.
+	 * @param offsets - Index of the first slot of each vertex, followed by the total number of connections
+	 * @param targets - The end vertex of each connection
+	 * @param weights - The weight of each connection
 	 */
-	@SuppressWarnings("unchecked")
-	public WeightedGraph(int numVertices) {
-		// Initialize the adjacency list
-		connections = (List<WeightedConnection>[]) new ArrayList[numVertices];
-		for(int i = 0; i < connections.length; i++)
-			connections[i] = new ArrayList<WeightedConnection>();
+	protected WeightedGraph(int[] offsets, int[] targets, float[] weights) {
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
 	}
-	
+
 	/**
-	 * Adds a connection between two vertices, with a given weight.
-	 * @param vertexA - A vertex between 0 (inclusive) and numVertices (exclusive)
-	 * @param vertexB - Another vertex between 0 (inclusive) and numVertices (exclusive)
-	 * @param weight - The weight of the connection
+	 * Get the number of connection slots of a given vertex.
+	 * @param vertex - A vertex between 0 (inclusive) and numVertices (exclusive)
+	 * @return the number of slots, some of which may be empty depending on the implementation
+	 */
+	public int getNumSlots(int vertex) {
+		return offsets[vertex+1] - offsets[vertex];
+	}
+
+	/**
+	 * Get the end vertex of a connection from a given vertex.
+	 * @param vertex - A vertex between 0 (inclusive) and numVertices (exclusive)
+	 * @param slot - A slot between 0 (inclusive) and getNumSlots(vertex) (exclusive)
+	 * @return the end vertex of the connection in the given slot, or -1 if the slot is empty
+	 */
+	public int getConnectedVertex(int vertex, int slot) {
+		return targets[offsets[vertex] + slot];
+	}
+
+	/**
+	 * Get the weight of a connection from a given vertex.
+	 * @param vertex - A vertex between 0 (inclusive) and numVertices (exclusive)
+	 * @param slot - A non-empty slot between 0 (inclusive) and getNumSlots(vertex) (exclusive)
+	 * @return the weight of the connection in the given slot
 	 */
-	public void addConnection(int vertexA, int vertexB, float weight) {
-		this.connections[vertexA].add(new WeightedConnection(vertexB, weight));		
+	public float getConnectionWeight(int vertex, int slot) {
+		return weights[offsets[vertex] + slot];
 	}
-	
+
 	/**
 	 * Get the connections from a given vertex.
+	 * Allocates new objects, prefer iterating over slots in performance-sensitive code.
 	 * @param vertex - A vertex between 0 (inclusive) and numVertices (exclusive)
 	 * @return a list of connections from the given vertex
 	 */
 	public List<WeightedConnection> getConnections(int vertex) {
-		return this.connections[vertex];
+		List<WeightedConnection> connections = new ArrayList<WeightedConnection>();
+		for(int slot = 0; slot < getNumSlots(vertex); slot++) {
+			int v = getConnectedVertex(vertex, slot);
+			if(v != -1)
+				connections.add(new WeightedConnection(v, getConnectionWeight(vertex, slot)));
+		}
+		return connections;
 	}
-	
+
 	/**
 	 * Get the weight of the connection between two given vertices.
 	 * @param vertexA - A vertex between 0 (inclusive) and numVertices (exclusive)
@@ -49,20 +82,84 @@ public class WeightedGraph {
 	 * @return the weight of the connection (0 if no such connection exists)
 	 */
 	public float getWeight(int vertexA, int vertexB) {
-		List<WeightedConnection> conns = getConnections(vertexA);
-		for(int i = 0; i < conns.size(); i++) {
-			WeightedConnection conn = conns.get(i);
-			if(conn.getVertex() == vertexB)
-				return conn.getWeight();
+		for(int slot = 0; slot < getNumSlots(vertexA); slot++) {
+			if(getConnectedVertex(vertexA, slot) == vertexB)
+				return getConnectionWeight(vertexA, slot);
 		}
 		return 0;
 	}
-	
+
 	/**
 	 * Get the number of vertices in this graph.
 	 * @return the number of vertices
 	 */
 	public int getNumVertices() {
-		return this.connections.length;
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Builds a WeightedGraph from a list of connections, added in any order.
+	 */
+	public static class Builder {
+		private int numVertices;
+		private int numConnections;
+		private int[] sources, targets;
+		private float[] weights;
+
+		/**
+		 * Create a new graph builder.
+		 * @param numVertices - The total number of vertices in the graph
+		 */
+		public Builder(int numVertices) {
+			this.numVertices = numVertices;
+			this.sources = new int[16];
+			this.targets = new int[16];
+			this.weights = new float[16];
+		}
+
+		/**
+		 * Adds a connection between two vertices, with a given weight.
+		 * @param vertexA - A vertex between 0 (inclusive) and numVertices (exclusive)
+		 * @param vertexB - Another vertex between 0 (inclusive) and numVertices (exclusive)
+		 * @param weight - The weight of the connection
+		 * @return this builder
+		 */
+		public Builder addConnection(int vertexA, int vertexB, float weight) {
+			if(numConnections == sources.length) {
+				sources = Arrays.copyOf(sources, numConnections * 2);
+				targets = Arrays.copyOf(targets, numConnections * 2);
+				weights = Arrays.copyOf(weights, numConnections * 2);
+			}
+			sources[numConnections] = vertexA;
+			targets[numConnections] = vertexB;
+			weights[numConnections] = weight;
+			numConnections++;
+			return this;
+		}
+
+		/**
+		 * Create the graph. Connections of each vertex keep the order in which they were added.
+		 * @return a new WeightedGraph
+		 */
+		public WeightedGraph build() {
+			// Count the connections of each vertex, then turn the counts into offsets
+			int[] offsets = new int[numVertices + 1];
+			for(int c = 0; c < numConnections; c++)
+				offsets[sources[c] + 1]++;
+			for(int v = 0; v < numVertices; v++)
+				offsets[v+1] += offsets[v];
+
+			// Place each connection in the next free slot of its vertex
+			int[] next = Arrays.copyOf(offsets, numVertices);
+			int[] csrTargets = new int[numConnections];
+			float[] csrWeights = new float[numConnections];
+			for(int c = 0; c < numConnections; c++) {
+				int slot = next[sources[c]]++;
+				csrTargets[slot] = targets[c];
+				csrWeights[slot] = weights[c];
+			}
+
+			return new WeightedGraph(offsets, csrTargets, csrWeights);
+		}
 	}
 }
@@ -0,0 +1,47 @@
+package utils;
+
+/**
+ * A fast random number generator using the xoroshiro128++ algorithm (period 2^128-1).
+ * The two words of state are initialized from the seed with SplitMix64, as recommended by the authors of the algorithm.
+ * @author Kelian Baert & Caroline de Pourtales
+ */
+public class XoroshiroRandom implements RandomGenerator {
+	// The state of the generator (never all zero)
+	private long s0, s1;
+	
+	/**
+	 * Create a new generator.
+	 * @param seed - The seed of the generator
+	 */
+	public XoroshiroRandom(long seed) {
+		long x = seed;
+		s0 = splitMix64(x += 0x9E3779B97F4A7C15L);
+		s1 = splitMix64(x += 0x9E3779B97F4A7C15L);
+		if(s0 == 0 && s1 == 0)
+			s1 = 1;
+	}
+	
+	@Override
+	public long nextLong() {
+		long a = s0, b = s1;
+		long result = Long.rotateLeft(a + b, 17) + a;
+		b ^= a;
+		s0 = Long.rotateLeft(a, 49) ^ b ^ (b << 21);
+		s1 = Long.rotateLeft(b, 28);
+		return result;
+	}
+	
+	@Override
+	public RandomGenerator split() {
+		return new XoroshiroRandom(nextLong());
+	}
+	
+	/**
+	 * Scramble a value with the SplitMix64 finalizer.
+	 */
+	private static long splitMix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}